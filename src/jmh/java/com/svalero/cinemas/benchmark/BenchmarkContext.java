@@ -0,0 +1,41 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.CinemasApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Arranca la aplicacion (sin servidor web salvo en las pruebas de carga) sobre una base de datos H2 en memoria,
+// para que los benchmarks no dependan de nada externo y se puedan repetir offline
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String databaseName, String... extraArgs) {
+        return start(WebApplicationType.NONE, databaseName, extraArgs);
+    }
+
+    // Con servidor web en un puerto libre (local.server.port), para las pruebas de carga HTTP
+    static ConfigurableApplicationContext startServer(String databaseName, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(extraArgs));
+        args.add("--server.port=0");
+        return start(WebApplicationType.SERVLET, databaseName, args.toArray(String[]::new));
+    }
+
+    // Las propiedades se pasan como argumentos para que tengan prioridad sobre application.properties
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String databaseName, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName,
+                "--cinemas.changes.log-file=",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(CinemasApplication.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,71 @@
+package com.svalero.cinemas.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Peticiones por segundo de GET /movies/{id} con el log de peticiones de DispatcherServlet (DEBUG, dos lineas por
+// peticion) segun la configuracion de logs: sin el, la de desarrollo (sincrona, con clase y metodo del llamante),
+// la de produccion (JSON asincrono) y la de produccion con el muestreo por defecto (1 de cada 100 lineas).
+// Cada modo arranca su propia JVM; los logs van a target/jmh-logs y a la salida estandar, que JMH muestra
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private static final String REQUEST_LOGGING = "--logging.level.org.springframework.web.servlet.DispatcherServlet=DEBUG";
+
+    @Param({"off", "sync", "async", "sampled"})
+    public String logging;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.startServer("logging-bench-" + logging, args(logging));
+        context.getBean(JdbcTemplate.class).update(
+                "insert into movies (id, title, genre, duration_minutes, release_date, currently_showing) values (?, ?, ?, ?, ?, ?)",
+                1L, "Dune", "Scifi", 155, Date.valueOf(LocalDate.of(2021, 9, 15)), true);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:"
+                + context.getEnvironment().getProperty("local.server.port") + "/movies/1")).GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+    }
+
+    private static String[] args(String logging) {
+        return switch (logging) {
+            // Sin el log de peticiones; BenchmarkContext ya deja el resto en WARN
+            case "off" -> new String[0];
+            case "sync" -> new String[]{"--logging.file.path=target/jmh-logs", REQUEST_LOGGING};
+            case "async" -> new String[]{"--logging.file.path=target/jmh-logs", REQUEST_LOGGING,
+                    "--spring.profiles.active=prod", "--cinemas.logging.sampling="};
+            case "sampled" -> new String[]{"--logging.file.path=target/jmh-logs", REQUEST_LOGGING,
+                    "--spring.profiles.active=prod"};
+            default -> throw new IllegalArgumentException("Unknown logging mode " + logging);
+        };
+    }
+
+    @Benchmark
+    public int getMovie() throws Exception {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+}
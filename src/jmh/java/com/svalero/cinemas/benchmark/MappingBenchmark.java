@@ -0,0 +1,93 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.mapper.MovieMapper;
+import com.svalero.cinemas.mapper.MovieMapperImpl;
+import com.svalero.cinemas.mapper.ScreeningMapper;
+import com.svalero.cinemas.mapper.ScreeningMapperImpl;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Coste de mapeo por peticion: ModelMapper (como estaba antes) frente a los mappers generados por MapStruct
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private MovieMapper movieMapper;
+    private ScreeningMapper screeningMapper;
+
+    private MovieInDto movieInDto;
+    private ScreeningInDto screeningInDto;
+    private Screening screening;
+    private List<Movie> movies;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        movieMapper = new MovieMapperImpl();
+        screeningMapper = new ScreeningMapperImpl();
+
+        movieInDto = new MovieInDto(null, "Dune", "Scifi", 155, LocalDate.of(2021, 9, 15), true);
+        screeningInDto = new ScreeningInDto(LocalDateTime.of(2026, 1, 1, 20, 0), "Sala 1", 8.5, true, 1L);
+        Movie movie = new Movie(1L, "Dune", "Scifi", 155, LocalDate.of(2021, 9, 15), true, null, null, null);
+        screening = new Screening(1L, LocalDateTime.of(2026, 1, 1, 20, 0), "Sala 1", 8.5, true, movie, null);
+        movies = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Drama", 100, LocalDate.of(2024, 1, 1), true, null, null, null));
+        }
+    }
+
+    @Benchmark
+    public Movie movieInDtoModelMapper() {
+        return modelMapper.map(movieInDto, Movie.class);
+    }
+
+    @Benchmark
+    public Movie movieInDtoMapStruct() {
+        return movieMapper.toEntity(movieInDto);
+    }
+
+    @Benchmark
+    public Screening screeningInDtoModelMapper() {
+        return modelMapper.map(screeningInDto, Screening.class);
+    }
+
+    @Benchmark
+    public Screening screeningInDtoMapStruct() {
+        return screeningMapper.toEntity(screeningInDto);
+    }
+
+    @Benchmark
+    public ScreeningOutDto screeningOutDtoModelMapper() {
+        ScreeningOutDto dto = modelMapper.map(screening, ScreeningOutDto.class);
+        dto.setMovieTitle(screening.getMovie().getTitle());
+        return dto;
+    }
+
+    @Benchmark
+    public ScreeningOutDto screeningOutDtoMapStruct() {
+        return screeningMapper.toOutDto(screening);
+    }
+
+    // La copia completa del listado que hacia MovieService.findAll; ahora se devuelve la lista tal cual
+    @Benchmark
+    public List<Movie> movieListCopyModelMapper() {
+        return modelMapper.map(movies, new TypeToken<List<Movie>>() {}.getType());
+    }
+}
@@ -0,0 +1,71 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import com.svalero.cinemas.service.MovieService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// MovieService.findAll con cada combinacion de filtros sobre un catalogo fijo de peliculas
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class MovieServiceBenchmark {
+
+    private static final int MOVIES = 10_000;
+    private static final String[] GENRES = {"Drama", "Scifi", "Comedy", "Horror", "Animation"};
+
+    @Param({"none", "title", "genre", "duration", "title+genre", "title+duration", "genre+duration", "title+genre+duration"})
+    public String filters;
+
+    private ConfigurableApplicationContext context;
+    private MovieService movieService;
+    private MovieFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("movies-bench");
+        movieService = context.getBean(MovieService.class);
+
+        // Datos deterministas: mismo catalogo en cada ejecucion
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= MOVIES; i++) {
+            rows.add(new Object[]{(long) i, "Movie " + (i % 1000), GENRES[i % GENRES.length], 80 + i % 100,
+                    Date.valueOf(LocalDate.of(2000, 1, 1).plusDays(i % 9000)), i % 3 == 0});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "insert into movies (id, title, genre, duration_minutes, release_date, currently_showing) values (?, ?, ?, ?, ?, ?)", rows);
+
+        filter = new MovieFilter();
+        if (filters.contains("title")) {
+            filter.setTitle("Movie 42");
+        }
+        if (filters.contains("genre")) {
+            filter.setGenre("Scifi");
+        }
+        if (filters.contains("duration")) {
+            filter.setDurationMinutes(121);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Movie> findAll() {
+        return movieService.findAll(filter, Sort.unsorted());
+    }
+}
@@ -0,0 +1,90 @@
+package com.svalero.cinemas.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.service.MoviePatchFields;
+import com.svalero.cinemas.service.MovieService;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Coste de un PATCH de pelicula: el bucle de reflexion anterior (findField + setAccessible + setField en cada
+// peticion), la tabla de setters precalculada de MoviePatchFields (con conversion y validacion) y la llamada
+// completa al servicio sobre H2 en memoria, cargando la entidad o con UPDATE directo de las columnas
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartialUpdateBenchmark {
+
+    private Movie movie;
+    private Map<String, Object> updates;
+    private MoviePatchFields moviePatchFields;
+
+    @Setup
+    public void setUp() {
+        movie = new Movie(1L, "Dune", "Scifi", 155, LocalDate.of(2021, 9, 15), true, null, 0L, null);
+        // Como llegan en un cuerpo JSON: la fecha como texto
+        updates = Map.of("title", "Dune: Part Two", "genre", "Scifi", "durationMinutes", 166,
+                "releaseDate", "2024-03-01", "currentlyShowing", false);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        moviePatchFields = new MoviePatchFields(objectMapper, Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @State(Scope.Benchmark)
+    public static class ServiceState {
+
+        @Param({"false", "true"})
+        public boolean targetedPatch;
+
+        private ConfigurableApplicationContext context;
+        private MovieService movieService;
+        private Long movieId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkContext.start("patch-bench-" + targetedPatch, "--cinemas.movies.targeted-patch=" + targetedPatch);
+            movieService = context.getBean(MovieService.class);
+            movieId = movieService.create(new MovieInDto(null, "Dune", "Scifi", 155, LocalDate.of(2021, 9, 15), true)).getId();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    // Solo asigna los valores, sin convertir la fecha (el codigo anterior fallaba con ella)
+    @Benchmark
+    public Movie reflection() {
+        updates.forEach((key, value) -> {
+            Field field = ReflectionUtils.findField(Movie.class, key);
+            if (field != null && field.getType().isInstance(value)) {
+                field.setAccessible(true);
+                ReflectionUtils.setField(field, movie, value);
+            }
+        });
+        return movie;
+    }
+
+    @Benchmark
+    public Movie accessors() {
+        moviePatchFields.resolve(updates).forEach(value -> value.applyTo(movie));
+        return movie;
+    }
+
+    @Benchmark
+    public Movie updatePartial(ServiceState state) {
+        return state.movieService.updatePartial(state.movieId, updates, null);
+    }
+}
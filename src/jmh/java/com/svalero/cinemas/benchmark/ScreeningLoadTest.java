@@ -0,0 +1,146 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.config.ReactiveReadServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prueba de carga de GET /screenings con muchos clientes concurrentes, con hilos de plataforma (pool de Tomcat),
+// con hilos virtuales y en la ruta reactiva (Netty y R2DBC, cinemas.reactive.enabled). No es un benchmark JMH: cada
+// modo arranca la aplicacion con servidor web y mide rendimiento y latencias (p50, p99) desde clientes HTTP en hilos
+// virtuales.
+// Argumentos: [clientes=2000] [segundos de medida=20] [sesiones en la tabla=200]
+public final class ScreeningLoadTest {
+
+    private static final int MOVIES = 50;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    private ScreeningLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Duration measurement = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 20);
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        List<String> report = new ArrayList<>();
+        for (String mode : new String[]{"platform", "virtual", "reactive"}) {
+            try (ConfigurableApplicationContext context = BenchmarkContext.startServer("screenings-load-" + mode,
+                    "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                    "--cinemas.reactive.enabled=" + mode.equals("reactive"),
+                    "--cinemas.reactive.port=0",
+                    // Con el bulkhead, las peticiones sin conexion fallan a los 5s en vez de esperar 30s a Hikari
+                    "--cinemas.datasource.max-concurrency=10")) {
+                seed(context.getBean(JdbcTemplate.class), rows);
+                int port = mode.equals("reactive")
+                        ? context.getBean(ReactiveReadServer.class).getPort()
+                        : Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+                URI uri = URI.create("http://localhost:" + port + "/screenings");
+                run(uri, clients, WARMUP);
+                Result result = run(uri, clients, measurement);
+                report.add(String.format("%-8s %9d %7d %10.1f %9.1f %9.1f %9.1f", mode, result.requests(), result.errors(),
+                        result.requests() / (double) measurement.toSeconds(),
+                        result.percentile(50), result.percentile(99), result.percentile(100)));
+            }
+        }
+
+        System.out.printf("%nGET /screenings, %d clients, %d s, %d screenings%n", clients, measurement.toSeconds(), rows);
+        System.out.printf("%-8s %9s %7s %10s %9s %9s %9s%n", "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        report.forEach(System.out::println);
+    }
+
+    private static Result run(URI uri, int clients, Duration duration) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[clients][];
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                clientThreads.submit(() -> {
+                    long[] own = new long[64];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == own.length) {
+                            own = Arrays.copyOf(own, count * 2);
+                        }
+                        own[count++] = System.nanoTime() - start;
+                    }
+                    latencies[client] = Arrays.copyOf(own, count);
+                });
+            }
+            clientThreads.shutdown();
+            clientThreads.awaitTermination(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        }
+
+        long[] all = Arrays.stream(latencies)
+                .filter(own -> own != null)
+                .flatMapToLong(Arrays::stream)
+                .sorted()
+                .toArray();
+        return new Result(all, errors.get());
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        List<Object[]> movies = new ArrayList<>();
+        for (int i = 1; i <= MOVIES; i++) {
+            movies.add(new Object[]{(long) i, "Movie " + i, "Drama", 90 + i % 60, Date.valueOf(LocalDate.of(2024, 1, 1)), true});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into movies (id, title, genre, duration_minutes, release_date, currently_showing) values (?, ?, ?, ?, ?, ?)", movies);
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 10, 0);
+        List<Object[]> screenings = new ArrayList<>();
+        for (int i = 1; i <= rows; i++) {
+            screenings.add(new Object[]{(long) i, Timestamp.valueOf(start.plusMinutes(15L * i)), "Sala " + (i % 12),
+                    5.0 + i % 8, i % 4 == 0, (long) (1 + i % MOVIES)});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into screenings (id, screening_time, theater_room, ticket_price, subtitled, movie_id) values (?, ?, ?, ?, ?, ?)", screenings);
+    }
+
+    private record Result(long[] latencies, long errors) {
+
+        long requests() {
+            return latencies.length;
+        }
+
+        // Percentil en milisegundos (100 = maximo)
+        double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
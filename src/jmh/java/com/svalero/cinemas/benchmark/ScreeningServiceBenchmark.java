@@ -0,0 +1,76 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.service.ScreeningService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ScreeningService.findAll (listado completo) y streamAll (NDJSON) segun el numero de sesiones en la tabla
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ScreeningServiceBenchmark {
+
+    private static final int MOVIES = 500;
+    private static final int BATCH = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ScreeningService screeningService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("screenings-bench-" + rows);
+        screeningService = context.getBean(ScreeningService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> movies = new ArrayList<>();
+        for (int i = 1; i <= MOVIES; i++) {
+            movies.add(new Object[]{(long) i, "Movie " + i, "Drama", 90 + i % 60, Date.valueOf(LocalDate.of(2024, 1, 1)), true});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into movies (id, title, genre, duration_minutes, release_date, currently_showing) values (?, ?, ?, ?, ?, ?)", movies);
+
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 10, 0);
+        List<Object[]> batch = new ArrayList<>(BATCH);
+        for (int i = 1; i <= rows; i++) {
+            batch.add(new Object[]{(long) i, Timestamp.valueOf(start.plusMinutes(15L * i)), "Sala " + (i % 12),
+                    5.0 + i % 8, i % 4 == 0, (long) (1 + i % MOVIES)});
+            if (batch.size() == BATCH || i == rows) {
+                jdbcTemplate.batchUpdate(
+                        "insert into screenings (id, screening_time, theater_room, ticket_price, subtitled, movie_id) values (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ScreeningOutDto> findAll() {
+        return screeningService.findAll();
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        screeningService.streamAll(blackhole::consume);
+    }
+}
@@ -0,0 +1,62 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.service.SeatInventory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+// Muchos compradores a la vez sobre la misma sesion: retener 2 butacas cualesquiera y soltarlas.
+// SeatInventory (compareAndSet por palabra de 64 butacas) frente a un BitSet protegido con synchronized,
+// que es lo que equivale a serializar todas las compras de la sesion en un unico bloqueo
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class SeatInventoryBenchmark {
+
+    // Sala de 20 x 25 butacas, con la mitad ya vendidas
+    private static final int SEAT_ROWS = 20;
+    private static final int SEATS_PER_ROW = 25;
+
+    private SeatInventory inventory;
+    private BitSet lockedSeats;
+
+    @Setup
+    public void setUp() {
+        inventory = new SeatInventory(SEAT_ROWS, SEATS_PER_ROW);
+        lockedSeats = new BitSet(SEAT_ROWS * SEATS_PER_ROW);
+        for (int seat = 0; seat < SEAT_ROWS * SEATS_PER_ROW; seat += 2) {
+            inventory.claim(new int[]{seat});
+            lockedSeats.set(seat);
+        }
+    }
+
+    @Benchmark
+    public int[] lockFree() {
+        int[] seats = inventory.claimAny(2);
+        if (seats != null) {
+            inventory.release(seats);
+        }
+        return seats;
+    }
+
+    @Benchmark
+    public int[] synchronizedBitSet() {
+        int[] seats = new int[2];
+        synchronized (lockedSeats) {
+            seats[0] = lockedSeats.nextClearBit(0);
+            seats[1] = lockedSeats.nextClearBit(seats[0] + 1);
+            lockedSeats.set(seats[0]);
+            lockedSeats.set(seats[1]);
+        }
+        synchronized (lockedSeats) {
+            lockedSeats.clear(seats[0]);
+            lockedSeats.clear(seats[1]);
+        }
+        return seats;
+    }
+}
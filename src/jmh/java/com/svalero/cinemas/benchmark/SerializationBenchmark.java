@@ -0,0 +1,52 @@
+package com.svalero.cinemas.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializacion con Jackson de una pelicula con sus sesiones, tal y como la devuelve GET /movies/{id} (MovieSummaryDto)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int screenings;
+
+    private ObjectMapper objectMapper;
+    private MovieSummaryDto movie;
+
+    @Setup
+    public void setUp() {
+        // Misma configuracion que el ObjectMapper de Spring Boot (modulos de fechas y fechas como texto)
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        List<ScreeningOutDto> screeningList = new ArrayList<>();
+        for (long i = 0; i < screenings; i++) {
+            screeningList.add(new ScreeningOutDto(i, LocalDateTime.of(2026, 1, 1, 10, 0).plusHours(i), "Sala " + i % 5, 8.5, i % 2 == 0, 1L, "Dune"));
+        }
+        movie = new MovieSummaryDto(1L, "Dune", "Scifi", 155, LocalDate.of(2021, 9, 15), true, 0L,
+                LocalDateTime.of(2025, 12, 1, 9, 0), screeningList);
+    }
+
+    @Benchmark
+    public byte[] serializeMovie() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+}
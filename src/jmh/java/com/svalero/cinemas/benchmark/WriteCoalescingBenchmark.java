@@ -0,0 +1,47 @@
+package com.svalero.cinemas.benchmark;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.service.WriteCoalescer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Altas de peliculas desde muchos hilos a la vez, como POST /movies bajo carga: cada una en su transaccion o
+// agrupadas por WriteCoalescer en una transaccion y un lote JDBC. H2 en memoria no escribe a disco al confirmar,
+// asi que contra MariaDB la diferencia es mayor
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class WriteCoalescingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    private ConfigurableApplicationContext context;
+    private WriteCoalescer writeCoalescer;
+    private MovieInDto movie;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("coalesce-bench-" + coalesce, "--cinemas.writes.coalesce.enabled=" + coalesce);
+        writeCoalescer = context.getBean(WriteCoalescer.class);
+        movie = new MovieInDto(null, "Dune", "Scifi", 155, LocalDate.of(2021, 9, 15), true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Movie createMovie() {
+        return writeCoalescer.createMovie(movie);
+    }
+}
@@ -0,0 +1,40 @@
+package com.svalero.cinemas.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class DataSourceConfig {
+
+    // Envuelve el DataSource en un bulkhead si cinemas.datasource.max-concurrency > 0, y por dentro en el grabador
+    // de sentencias si esta activa la comprobacion de planes de ejecucion al arrancar. Con replicas se envuelve el pool
+    // del primario; los de las replicas los envuelve ReplicaDataSourceConfig
+    @Bean
+    public static BeanPostProcessor dataSourceBulkheadPostProcessor(Environment environment) {
+        int maxConcurrency = environment.getProperty("cinemas.datasource.max-concurrency", Integer.class, 0);
+        Duration acquireTimeout = environment.getProperty("cinemas.datasource.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+        boolean queryPlanCheck = environment.getProperty("cinemas.query-plan-check.enabled", Boolean.class, false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource
+                        || bean instanceof ReplicaDataSource) {
+                    return bean;
+                }
+                if (queryPlanCheck) {
+                    dataSource = new StatementRecordingDataSource(dataSource);
+                }
+                if (maxConcurrency > 0) {
+                    dataSource = new BulkheadDataSource(dataSource, maxConcurrency, acquireTimeout);
+                }
+                return dataSource;
+            }
+        };
+    }
+}
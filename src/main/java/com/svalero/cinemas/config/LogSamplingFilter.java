@@ -0,0 +1,63 @@
+package com.svalero.cinemas.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Muestreo por logger para logback-spring.xml: de cada logger configurado solo se escribe la fraccion indicada
+// de las lineas INFO, DEBUG y TRACE. WARN y ERROR pasan siempre. Se configura con rates="prefijo=fraccion,...";
+// para cada logger cuenta el prefijo mas largo que coincide con su nombre
+public class LogSamplingFilter extends TurboFilter {
+
+    private static final Double ALWAYS = 1.0;
+
+    private final Map<String, Double> rates = new ConcurrentHashMap<>();
+    // Fraccion ya resuelta por nombre de logger, para no recorrer los prefijos en cada linea
+    private final Map<String, Double> resolved = new ConcurrentHashMap<>();
+
+    public void setRates(String rates) {
+        this.rates.clear();
+        this.resolved.clear();
+        if (rates == null || rates.isBlank()) {
+            return;
+        }
+        for (String entry : rates.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                addError("Invalid log sampling entry '" + entry + "', expected logger=rate");
+                continue;
+            }
+            try {
+                this.rates.put(parts[0].trim(), Math.max(0, Math.min(1, Double.parseDouble(parts[1].trim()))));
+            } catch (NumberFormatException e) {
+                addError("Invalid log sampling rate in '" + entry + "'");
+            }
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (rates.isEmpty() || level == null || level.isGreaterOrEqual(Level.WARN) || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        double rate = resolved.computeIfAbsent(logger.getName(), this::rateFor);
+        return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private Double rateFor(String loggerName) {
+        String match = null;
+        for (String prefix : rates.keySet()) {
+            boolean matches = loggerName.equals(prefix) || loggerName.startsWith(prefix + ".");
+            if (matches && (match == null || prefix.length() > match.length())) {
+                match = prefix;
+            }
+        }
+        return match == null ? ALWAYS : rates.get(match);
+    }
+}
@@ -0,0 +1,55 @@
+package com.svalero.cinemas.config;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.ReservedSeat;
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.TheaterRoom;
+import com.svalero.cinemas.domain.dto.BulkImportResult;
+import com.svalero.cinemas.domain.dto.BulkRowError;
+import com.svalero.cinemas.domain.dto.CacheRegionStats;
+import com.svalero.cinemas.domain.dto.ChangeEventDto;
+import com.svalero.cinemas.domain.dto.CursorPage;
+import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.MovieSearchHitDto;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.NowShowingMovieDto;
+import com.svalero.cinemas.domain.dto.ReservationInDto;
+import com.svalero.cinemas.domain.dto.ReservationOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningScheduleFilter;
+import com.svalero.cinemas.domain.dto.SeatDto;
+import com.svalero.cinemas.domain.dto.SeatMapDto;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+// Lo que el procesado AOT (perfil native de Maven) no deduce por su cuenta. Las entidades y los tipos de los
+// controladores ya los registra Spring, pero no las filas de las importaciones masivas (BulkPayloadReader las lee
+// con Jackson por su clase), los cambios que ChangeFeed vuelve a leer de su fichero, los setters de Movie que usa
+// MoviePatchFields ni application.conf de Caffeine JCache
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    static final List<Class<?>> ENTITIES = List.of(Movie.class, Screening.class, TheaterRoom.class, ReservedSeat.class);
+
+    static final List<Class<?>> DTOS = List.of(BulkImportResult.class, BulkRowError.class, CacheRegionStats.class,
+            ChangeEventDto.class, CursorPage.class, ErrorResponse.class, MovieFilter.class, MovieInDto.class,
+            MovieSearchHitDto.class, MovieSummaryDto.class, NowShowingMovieDto.class, ReservationInDto.class,
+            ReservationOutDto.class, ScreeningInDto.class, ScreeningOutDto.class, ScreeningScheduleFilter.class,
+            SeatDto.class, SeatMapDto.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+        DTOS.forEach(type -> binding.registerReflectionHints(hints.reflection(), type));
+        ENTITIES.forEach(type -> hints.reflection().registerType(type,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS,
+                MemberCategory.DECLARED_FIELDS));
+        hints.resources().registerPattern("application.conf");
+    }
+}
@@ -0,0 +1,28 @@
+package com.svalero.cinemas.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Metricas de Hibernate que Spring Boot no registra por su cuenta. Las generales (consultas ejecutadas, sesiones,
+// aciertos y fallos de la cache de segundo nivel por region) ya las publica el autoconfigurado de hibernate-micrometer.
+// El tiempo por consulta lo da spring.data.repository.invocations, por metodo de repositorio
+@Configuration
+public class ObservabilityConfig {
+
+    private static final String SESSION_FACTORY_NAME = "entityManagerFactory";
+
+    // Sentencias distintas que han superado hibernate.log_slow_query; el texto de cada una sale en el log org.hibernate.SQL_SLOW
+    @Bean
+    public MeterBinder hibernateSlowQueries(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> Gauge.builder("hibernate.query.slow", statistics, stats -> stats.getSlowQueries().size())
+                .tag(SESSION_FACTORY_NAME, SESSION_FACTORY_NAME)
+                .description("Distinct statements slower than hibernate.log_slow_query")
+                .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.svalero.cinemas.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.controller.ReactiveReadHandler;
+import com.svalero.cinemas.repository.ReactiveReadRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.time.Duration;
+
+import static org.springframework.util.StringUtils.hasText;
+
+// Lecturas reactivas (cinemas.reactive.enabled): GET /movies, /movies/{id} y /screenings sobre R2DBC, servidas por
+// Netty en cinemas.reactive.port. MVC y WebFlux no pueden compartir servidor, asi que Tomcat sigue atendiendo todo lo
+// demas en server.port. Sin cinemas.reactive.r2dbc-url se conecta a la misma base de datos que spring.datasource.url.
+// El pool de R2DBC no se publica como bean: con un ConnectionFactory en el contexto Spring Boot no crea el DataSource
+@Configuration
+@ConditionalOnProperty(value = "cinemas.reactive.enabled", havingValue = "true")
+public class ReactiveReadConfig {
+
+    // Opcion de r2dbc-h2 que recibe la URL de H2 tal cual (mem:, file:, tcp: y sus parametros)
+    private static final Option<String> H2_URL = Option.valueOf("url");
+
+    @Bean
+    public ReactiveReadServer reactiveReadServer(DataSourceProperties properties, ObjectMapper objectMapper,
+                                                 @Value("${cinemas.reactive.port:8081}") int port,
+                                                 @Value("${cinemas.reactive.r2dbc-url:}") String r2dbcUrl,
+                                                 @Value("${cinemas.reactive.pool-size:10}") int poolSize,
+                                                 @Value("${cinemas.datasource.acquire-timeout:5s}") Duration acquireTimeout) {
+        ConnectionPool connectionPool = connectionPool(properties, r2dbcUrl, poolSize, acquireTimeout);
+        ReactiveReadHandler handler = new ReactiveReadHandler(new ReactiveReadRepository(DatabaseClient.create(connectionPool)));
+        // El mismo ObjectMapper que MVC: fechas y nulos se escriben igual en los dos servidores
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ReactiveReadServer(RouterFunctions.toHttpHandler(handler.routes(), strategies), port, connectionPool);
+    }
+
+    private static ConnectionPool connectionPool(DataSourceProperties properties, String r2dbcUrl, int poolSize,
+                                                 Duration acquireTimeout) {
+        ConnectionFactoryOptions options = hasText(r2dbcUrl)
+                ? ConnectionFactoryOptions.parse(r2dbcUrl)
+                : fromJdbcUrl(properties.determineUrl());
+        ConnectionFactoryOptions.Builder builder = options.mutate();
+        if (!options.hasOption(ConnectionFactoryOptions.USER) && properties.determineUsername() != null) {
+            builder.option(ConnectionFactoryOptions.USER, properties.determineUsername());
+        }
+        if (!options.hasOption(ConnectionFactoryOptions.PASSWORD) && properties.determinePassword() != null) {
+            builder.option(ConnectionFactoryOptions.PASSWORD, properties.determinePassword());
+        }
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(builder.build()))
+                .name("reactive")
+                .maxSize(poolSize)
+                .maxAcquireTime(acquireTimeout)
+                .build());
+    }
+
+    // jdbc:h2:... y jdbc:mariadb://... tienen equivalente directo; para otra base de datos hay que dar r2dbc-url
+    static ConnectionFactoryOptions fromJdbcUrl(String jdbcUrl) {
+        if (jdbcUrl.startsWith("jdbc:h2:")) {
+            return ConnectionFactoryOptions.builder()
+                    .option(ConnectionFactoryOptions.DRIVER, "h2")
+                    .option(H2_URL, jdbcUrl.substring("jdbc:h2:".length()))
+                    .build();
+        }
+        if (jdbcUrl.startsWith("jdbc:mariadb:")) {
+            return ConnectionFactoryOptions.parse("r2dbc:" + jdbcUrl.substring("jdbc:".length()));
+        }
+        throw new IllegalStateException("Cannot derive an R2DBC URL from " + jdbcUrl + ", set cinemas.reactive.r2dbc-url");
+    }
+}
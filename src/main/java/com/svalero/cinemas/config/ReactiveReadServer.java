@@ -0,0 +1,59 @@
+package com.svalero.cinemas.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+
+// Servidor Netty de las lecturas reactivas, aparte de Tomcat: arranca con el contexto y al pararse cierra tambien su
+// pool de R2DBC. Con port=0 escucha en un puerto libre, que se consulta con getPort()
+public class ReactiveReadServer implements SmartLifecycle {
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveReadServer.class);
+
+    private final HttpHandler httpHandler;
+    private final int port;
+    private final ConnectionPool connectionPool;
+    private volatile DisposableServer server;
+
+    public ReactiveReadServer(HttpHandler httpHandler, int port, ConnectionPool connectionPool) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        logger.info("Reactive read endpoints listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow(Duration.ofSeconds(10));
+            server = null;
+        }
+        connectionPool.dispose();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        DisposableServer running = server;
+        return running != null ? running.port() : -1;
+    }
+}
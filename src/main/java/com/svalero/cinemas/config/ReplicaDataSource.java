@@ -0,0 +1,145 @@
+package com.svalero.cinemas.config;
+
+import com.svalero.cinemas.service.MovieService;
+import com.svalero.cinemas.service.ScreeningService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Conexiones de solo lectura (las que pide LazyConnectionDataSourceProxy para una transaccion readOnly). Solo las
+// transacciones de lectura que abren MovieService y ScreeningService van a una replica: las readOnly que abre un
+// repositorio por su cuenta (por ejemplo el findById previo a una escritura) siguen en el primario para leer lo
+// ultimo escrito. Las replicas se reparten por turnos; cada check-interval se mide su retraso y se apartan las que
+// no responden o van mas de max-lag por detras. Sin ninguna disponible se lee del primario
+public class ReplicaDataSource extends AbstractDataSource implements DisposableBean {
+
+    // Clases cuyos metodos @Transactional(readOnly = true) leen de las replicas
+    static final Set<String> REPLICA_READ_SERVICES = Set.of(MovieService.class.getName(), ScreeningService.class.getName());
+
+    private final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final String lagColumn;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, String lagQuery, String lagColumn, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = IntStream.range(0, replicas.size()).mapToObj(i -> new Replica(i, replicas.get(i))).toList();
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+        this.maxLag = maxLag;
+        checkReplicas();
+    }
+
+    // Nombre de una transaccion de Spring: clase.metodo que la ha abierto
+    static boolean isReplicaRead(String transactionName) {
+        int lastDot = transactionName == null ? -1 : transactionName.lastIndexOf('.');
+        return lastDot > 0 && REPLICA_READ_SERVICES.contains(transactionName.substring(0, lastDot));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !isReplicaRead(TransactionSynchronizationManager.getCurrentTransactionName())) {
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.available) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                // Hasta la siguiente comprobacion no se vuelve a intentar
+                replica.available = false;
+                logger.warn("Replica {} unavailable, reading from another one: {}", replica.index, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLException("Replica connections use the pool credentials");
+    }
+
+    // Replicas que ahora mismo reciben lecturas
+    public int getAvailableReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.available).count();
+    }
+
+    @Scheduled(fixedDelayString = "${cinemas.datasource.replica-check-interval:2s}")
+    public void checkReplicas() {
+        replicas.forEach(replica -> {
+            Duration lag = measureLag(replica);
+            boolean available = lag != null && lag.compareTo(maxLag) <= 0;
+            if (available != replica.available) {
+                if (available) {
+                    logger.info("Replica {} back in rotation ({} s behind)", replica.index, lag.toSeconds());
+                } else {
+                    logger.warn("Replica {} out of rotation ({})", replica.index,
+                            lag == null ? "not replicating or unreachable" : lag.toSeconds() + " s behind");
+                }
+            }
+            replica.available = available;
+        });
+    }
+
+    // Retraso segun la consulta configurada (SHOW REPLICA STATUS en MariaDB); null si no responde o no replica
+    private Duration measureLag(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, maxLag.toSeconds()));
+            try (ResultSet result = statement.executeQuery(lagQuery)) {
+                if (!result.next()) {
+                    return null;
+                }
+                long seconds = result.getLong(lagColumn);
+                return result.wasNull() ? null : Duration.ofSeconds(seconds);
+            }
+        } catch (SQLException e) {
+            logger.debug("Replica {} lag check failed", replica.index, e);
+            return null;
+        }
+    }
+
+    // Cierra los pools de las replicas (van envueltos en el bulkhead)
+    @Override
+    public void destroy() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource.isWrapperFor(AutoCloseable.class)) {
+                replica.dataSource.unwrap(AutoCloseable.class).close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final DataSource dataSource;
+        private volatile boolean available;
+
+        private Replica(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.svalero.cinemas.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replicas de lectura (MariaDB), solo si se configura cinemas.datasource.replica-urls. El DataSource de la aplicacion
+// pasa a ser un LazyConnectionDataSourceProxy: no pide la conexion hasta la primera sentencia, cuando ya se sabe si la
+// transaccion es readOnly, y en ese caso la pide a ReplicaDataSource. Flyway y las escrituras van siempre al primario
+@Configuration
+@ConditionalOnProperty("cinemas.datasource.replica-urls")
+public class ReplicaDataSourceConfig {
+
+    // El mismo pool que crearia Spring Boot con spring.datasource.* y spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Un pool por replica, del mismo tamaño que el del primario y con las mismas credenciales
+    @Bean
+    public ReplicaDataSource replicaDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                              DataSourceProperties properties,
+                                              @Value("${cinemas.datasource.replica-urls}") List<String> replicaUrls,
+                                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                              @Value("${cinemas.datasource.max-concurrency:0}") int maxConcurrency,
+                                              @Value("${cinemas.datasource.acquire-timeout:5s}") Duration acquireTimeout,
+                                              @Value("${cinemas.datasource.replica-lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                              @Value("${cinemas.datasource.replica-lag-column:Seconds_Behind_Master}") String lagColumn,
+                                              @Value("${cinemas.datasource.replica-max-lag:5s}") Duration maxLag) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i).trim())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replicas.add(maxConcurrency > 0 ? new BulkheadDataSource(replica, maxConcurrency, acquireTimeout) : replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, lagQuery, lagColumn, maxLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    // Lo leido de una replica puede ir por detras del primario: esas transacciones usan la cache de segundo nivel
+    // pero no la rellenan, para que una version antigua no se quede en ella hasta el siguiente cambio
+    @Bean
+    public static BeanPostProcessor replicaReadCacheModePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactory) {
+                    entityManagerFactory.setJpaDialect(new HibernateJpaDialect() {
+                        @Override
+                        public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+                                throws SQLException {
+                            Object transactionData = super.beginTransaction(entityManager, definition);
+                            if (definition.isReadOnly() && ReplicaDataSource.isReplicaRead(definition.getName())) {
+                                entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+                            }
+                            return transactionData;
+                        }
+                    });
+                }
+                return bean;
+            }
+        };
+    }
+}
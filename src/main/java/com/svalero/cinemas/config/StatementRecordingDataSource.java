@@ -0,0 +1,96 @@
+package com.svalero.cinemas.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Guarda el SQL y los parametros de las sentencias preparadas que se lanzan dentro de record(), para poder
+// repetirlas despues con EXPLAIN (QueryPlanChecker). Fuera de record() las sentencias pasan sin mas
+public class StatementRecordingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<List<RecordedStatement>> RECORDING = new ThreadLocal<>();
+
+    public StatementRecordingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    public static List<RecordedStatement> record(Runnable action) {
+        List<RecordedStatement> statements = new ArrayList<>();
+        RECORDING.set(statements);
+        try {
+            action.run();
+        } finally {
+            RECORDING.remove();
+        }
+        return statements;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return recording(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return recording(super.getConnection(username, password));
+    }
+
+    private static Connection recording(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            List<RecordedStatement> statements = RECORDING.get();
+            if (statements != null && method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement) {
+                RecordedStatement recorded = new RecordedStatement((String) args[0], new ArrayList<>());
+                statements.add(recorded);
+                return proxy(PreparedStatement.class, (statementProxy, statementMethod, statementArgs) -> {
+                    // setString(1, ...), setLong(2, ...), setNull(3, ...): se guardan para repetirlos en el mismo orden
+                    if (statementMethod.getName().startsWith("set") && statementArgs != null && statementArgs.length >= 2
+                            && statementArgs[0] instanceof Integer) {
+                        recorded.bindings().add(new Binding(statementMethod, statementArgs));
+                    }
+                    return invoke(statement, statementMethod, statementArgs);
+                });
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    public record RecordedStatement(String sql, List<Binding> bindings) {
+
+        // Aplica los mismos parametros sobre otra sentencia con los mismos marcadores (por ejemplo EXPLAIN + sql)
+        public void bindTo(PreparedStatement statement) throws SQLException {
+            for (Binding binding : bindings) {
+                try {
+                    binding.method().invoke(statement, binding.args());
+                } catch (ReflectiveOperationException e) {
+                    throw new SQLException("Could not replay " + binding.method().getName() + " on " + sql, e);
+                }
+            }
+        }
+    }
+
+    public record Binding(Method method, Object[] args) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.svalero.cinemas.controller;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Abre el cuerpo de una peticion de importacion masiva como un iterador de filas, leyendo en streaming.
+// Admite un array JSON, NDJSON (un objeto por linea) o CSV con cabecera
+@Component
+class BulkPayloadReader {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+    static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+
+    BulkPayloadReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+
+    <T> MappingIterator<T> read(InputStream body, MediaType contentType, Class<T> rowType) throws IOException {
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            return csvMapper.readerFor(rowType)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(body);
+        }
+        // Tanto un array JSON como una secuencia de objetos separados por saltos de linea
+        return objectMapper.readerFor(rowType).readValues(body);
+    }
+}
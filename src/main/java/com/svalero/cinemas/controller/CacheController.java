@@ -0,0 +1,24 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.CacheRegionStats;
+import com.svalero.cinemas.service.CatalogCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class CacheController {
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    // Aciertos y fallos por region de la cache de segundo nivel, para ajustar los tamaños
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheRegionStats>> getCacheStats() {
+        List<CacheRegionStats> stats = catalogCacheService.getStatistics();
+        return ResponseEntity.ok(stats);
+    }
+}
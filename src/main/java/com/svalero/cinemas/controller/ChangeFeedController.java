@@ -0,0 +1,86 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.ChangeEventDto;
+import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.exception.InvalidChangeFeedQueryException;
+import com.svalero.cinemas.service.ChangeFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+public class ChangeFeedController {
+
+    private static final Set<String> ENTITIES = Set.of(ChangeEventDto.MOVIE, ChangeEventDto.SCREENING);
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Value("${cinemas.changes.stream-timeout:30m}")
+    private Duration streamTimeout;
+
+    private final Logger logger = LoggerFactory.getLogger(ChangeFeedController.class);
+
+    // Cambios de peliculas y sesiones por SSE: un evento "movie" o "screening" por cambio con el offset como id. Sin
+    // Last-Event-ID ni since solo llegan los nuevos. Al caducar la respuesta el navegador reconecta con Last-Event-ID
+    // y sigue donde estaba. Un evento "reset" avisa de que se han perdido cambios y hay que recargar los listados
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(value = "since", required = false) Long since,
+                                    @RequestParam(value = "entity", required = false) String entity) {
+        if (entity != null && !ENTITIES.contains(entity)) {
+            throw new InvalidChangeFeedQueryException("Unknown entity: " + entity + ", expected movie or screening");
+        }
+        long after = lastEventId != null ? lastEventId : since != null ? since : changeFeed.lastOffset();
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        changeFeed.subscribe(Math.max(after, 0), entity, new ChangeFeed.Subscriber() {
+            @Override
+            public void send(ChangeEventDto event) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getOffset()))
+                        .name(event.getEntity())
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void reset(long offset) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(offset))
+                        .name("reset")
+                        .data(Map.of("offset", offset), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    @ExceptionHandler(InvalidChangeFeedQueryException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidChangeFeedQuery(InvalidChangeFeedQueryException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+}
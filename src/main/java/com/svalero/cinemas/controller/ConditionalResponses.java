@@ -0,0 +1,39 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.ResourceValidator;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.function.Supplier;
+
+// GET condicionales: con If-None-Match / If-Modified-Since se compara primero el validador (una consulta pequeña
+// o un contador en memoria) y, si el cliente ya tiene la version actual, se responde 304 sin leer ni serializar el cuerpo
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    static <T> ResponseEntity<T> of(WebRequest request, ResourceValidator validator, CacheControl cacheControl, Supplier<T> body) {
+        // checkNotModified deja ya las cabeceras ETag y Last-Modified en la respuesta, tanto para 304 como para 200
+        boolean notModified = validator.getLastModified() == null
+                ? request.checkNotModified(validator.getETag())
+                : request.checkNotModified(validator.getETag(), epochMillis(validator));
+        if (notModified) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(body.get());
+    }
+
+    // Cuanto puede reutilizar el cliente la respuesta sin volver a preguntar; despues revalida con el ETag
+    static CacheControl maxAge(Duration maxAge) {
+        return CacheControl.maxAge(maxAge).mustRevalidate();
+    }
+
+    private static long epochMillis(ResourceValidator validator) {
+        return validator.getLastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,93 @@
+package com.svalero.cinemas.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.exception.InvalidIdempotencyKeyException;
+import com.svalero.cinemas.service.IdempotencyStore;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Altas con cabecera Idempotency-Key: la primera peticion con una clave se ejecuta y su respuesta se guarda; las
+// siguientes con la misma clave y el mismo cuerpo reciben esa respuesta (con Idempotent-Replayed: true) sin volver a
+// escribir. Sin la cabecera la peticion se ejecuta como siempre. Las respuestas de error no se guardan
+@Component
+class IdempotentRequests {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    IdempotentRequests(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    // scope separa las claves de cada endpoint; request es el cuerpo recibido, del que sale la huella
+    <T> ResponseEntity<T> execute(String scope, String key, Object request, Class<T> responseType,
+                                  Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(request);
+        Optional<IdempotencyStore.StoredResponse> stored = store.begin(scope, key, fingerprint);
+        if (stored.isPresent()) {
+            return ResponseEntity.status(stored.get().status())
+                    .header(IDEMPOTENT_REPLAYED, "true")
+                    .body(read(stored.get().body(), responseType));
+        }
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            store.release(scope, key);
+            throw e;
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            store.complete(scope, key, fingerprint,
+                    new IdempotencyStore.StoredResponse(response.getStatusCode().value(), write(response.getBody())));
+        } else {
+            store.release(scope, key);
+        }
+        return response;
+    }
+
+    // SHA-256 del cuerpo tal como lo serializa Jackson: el mismo DTO da siempre la misma huella
+    private String fingerprint(Object request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(String body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,22 +1,52 @@
 package com.svalero.cinemas.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.BulkImportResult;
+import com.svalero.cinemas.domain.dto.CursorPage;
 import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.domain.dto.MovieFilter;
 import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.MovieSearchHitDto;
+import com.svalero.cinemas.domain.dto.NowShowingMovieDto;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.ResourceValidator;
+import com.svalero.cinemas.exception.IdempotencyKeyInUseException;
+import com.svalero.cinemas.exception.IdempotencyKeyReusedException;
+import com.svalero.cinemas.exception.InvalidIdempotencyKeyException;
+import com.svalero.cinemas.exception.InvalidMoviePatchException;
+import com.svalero.cinemas.exception.InvalidMovieQueryException;
 import com.svalero.cinemas.exception.MovieNotFoundException;
+import com.svalero.cinemas.exception.MovieVersionConflictException;
+import com.svalero.cinemas.exception.ScreeningConflictException;
+import com.svalero.cinemas.mapper.MovieMapper;
+import com.svalero.cinemas.service.BulkImportService;
 import com.svalero.cinemas.service.MovieService;
+import com.svalero.cinemas.service.NowShowingBoard;
+import com.svalero.cinemas.service.WriteCoalescer;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -30,100 +60,163 @@ public class MovieController {
     @Autowired
     private  MovieService movieService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkPayloadReader bulkPayloadReader;
+
+    @Autowired
+    private MovieMapper movieMapper;
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
+    @Value("${cinemas.http.cache.movie-max-age:60s}")
+    private Duration movieMaxAge;
+
+    @Value("${cinemas.http.cache.now-showing-max-age:10s}")
+    private Duration nowShowingMaxAge;
+
     //defino el objeto logger basado en la clase Logger
     private final Logger logger = LoggerFactory.getLogger(MovieController.class);
 
-    // Obtener todas las películas con posibilidad de filtro por genero
+    // Obtener todas las películas con posibilidad de filtrar por cualquier combinación de campos y ordenar (?sort=title,desc)
+    // Sin sesiones; ?expand=screenings las añade con una consulta por lote
     @GetMapping
-    public ResponseEntity<List<Movie>> getAllMovies(@RequestParam(value = "title", defaultValue = "") String title,
-                                                    @RequestParam(value = "genre", defaultValue = "") String genre,
-                                                    @RequestParam(value = "durationMinutes", required = false) Integer durationMinutes) {
+    public ResponseEntity<List<MovieSummaryDto>> getAllMovies(@ModelAttribute MovieFilter filter, Sort sort,
+                                                              @RequestParam(value = "expand", required = false) String expand) {
 
-        logger.info("BEGIN getAllMovies");
-        List<Movie> movies = movieService.findAll(title, genre, durationMinutes);
-        logger.info("END getAllMovies");
+        List<MovieSummaryDto> movies = movieService.toSummaries(movieService.findAll(filter, sort), expandScreenings(expand));
         return new ResponseEntity<>(movies, HttpStatus.OK);
     }
 
-    // Buscar película por ID
-    @GetMapping("/{id}")
-    public ResponseEntity<Movie> getMovieById(@PathVariable Long id)  {
-//        logger.info("BEGIN getMovieById");
-//        return movieService.findById(id)
-//                .map(ResponseEntity::ok)
-//                .orElse(ResponseEntity.notFound().build());
-        logger.info("BEGIN getMovieById");
-        Optional<Movie> movieOptional = movieService.findById(id);
+    // Obtener películas por páginas usando el id como cursor (?limit=50&after=120), admite los mismos filtros
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<MovieSummaryDto>> getMoviesPage(@ModelAttribute MovieFilter filter,
+                                                                     @RequestParam(value = "after", required = false) Long after,
+                                                                     @RequestParam(value = "limit") int limit,
+                                                                     @RequestParam(value = "expand", required = false) String expand) {
+        CursorPage<MovieSummaryDto> page = movieService.toSummaries(movieService.findPage(filter, after, limit), expandScreenings(expand));
+        return ResponseEntity.ok(page);
+    }
 
+    // Obtener todas las películas en streaming, una por línea (NDJSON)
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllMovies() {
+        return NdjsonResponses.of(objectMapper, movieService::streamAll);
+    }
 
+    // Buscar película por ID. Con If-None-Match / If-Modified-Since responde 304 sin cargar la pelicula ni sus sesiones
+    @GetMapping("/{id}")
+    public ResponseEntity<MovieSummaryDto> getMovieById(@PathVariable Long id, WebRequest request)  {
+        Optional<ResourceValidator> validator = movieService.findValidator(id);
 
-        if (movieOptional.isPresent()) {
-            logger.info("END getMovieById - Movie found");
-            return ResponseEntity.ok(movieOptional.get());
+        if (validator.isPresent()) {
+            return ConditionalResponses.of(request, validator.get(), ConditionalResponses.maxAge(movieMaxAge),
+                    () -> movieService.findDetail(id));
         } else {
-            logger.info("END getMovieById - Movie not found");
             return ResponseEntity.notFound().build();
         }
     }
 
     // Buscar película por título
     @GetMapping("/title/{title}")
-    public ResponseEntity<List<Movie>> getByTitle(@PathVariable String title) throws MovieNotFoundException {
-        logger.info("BEGIN getByTitle");
-        List<Movie> movie = movieService.findByTitle(title);
-        logger.info("END getByTitle");
+    public ResponseEntity<List<MovieSummaryDto>> getByTitle(@PathVariable String title,
+                                                            @RequestParam(value = "expand", required = false) String expand) throws MovieNotFoundException {
+        List<MovieSummaryDto> movie = movieService.toSummaries(movieService.findByTitle(title), expandScreenings(expand));
         return ResponseEntity.ok(movie);
 
     }
 
+    // Cartelera: películas en cartelera con sus próximas sesiones en cada sala, de una copia ya calculada en memoria.
+    // Con If-None-Match responde 304 mientras la cartelera no cambie
+    @GetMapping("/now-showing")
+    public ResponseEntity<List<NowShowingMovieDto>> getNowShowing(WebRequest request) {
+        NowShowingBoard.Snapshot board = movieService.findNowShowing();
+        return ConditionalResponses.of(request, board.validator(), ConditionalResponses.maxAge(nowShowingMaxAge), board::movies);
+    }
+
+    // Búsqueda por palabras del título o el género (?q=star wars), con prefijos y erratas, ordenada por relevancia
+    @GetMapping("/search")
+    public ResponseEntity<List<MovieSearchHitDto>> searchMovies(@RequestParam("q") String query,
+                                                                @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(movieService.search(query, limit));
+    }
+
+    // Autocompletado de títulos mientras se escribe (?q=star wa)
+    @GetMapping("/search/suggest")
+    public ResponseEntity<List<String>> suggestTitles(@RequestParam("q") String prefix,
+                                                      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(movieService.suggestTitles(prefix, limit));
+    }
+
     // Buscar película por currentlyShowing usando JPQL
     @GetMapping("/currentlyShowing/{currentlyShowing}")
-    public ResponseEntity<List<Movie>> getBycurrentlyShowing(@PathVariable boolean currentlyShowing) throws MovieNotFoundException {
-        logger.info("BEGIN getBycurrentlyShowing");
-        List<Movie> movie = movieService.findBycurrentlyShowing(currentlyShowing);
-        logger.info("END getBycurrentlyShowing");
+    public ResponseEntity<List<MovieSummaryDto>> getBycurrentlyShowing(@PathVariable boolean currentlyShowing,
+                                                                       @RequestParam(value = "expand", required = false) String expand) throws MovieNotFoundException {
+        List<MovieSummaryDto> movie = movieService.toSummaries(movieService.findBycurrentlyShowing(currentlyShowing), expandScreenings(expand));
         return ResponseEntity.ok(movie);
 
     }
 
     // Crear nueva película
+    // Con Idempotency-Key un reintento devuelve la pelicula ya creada; las altas simultaneas se guardan juntas
     @PostMapping
-    public ResponseEntity<Movie> createMovie(@Valid @RequestBody MovieInDto movieInDto) {
-        logger.info("BEGIN createMovie");
-        Movie movie = movieService.create(movieInDto);
-        logger.info("END createMovies");
-        return new ResponseEntity<>(movie, HttpStatus.OK);
+    public ResponseEntity<MovieSummaryDto> createMovie(@Valid @RequestBody MovieInDto movieInDto,
+                                                       @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute("POST /movies", idempotencyKey, movieInDto, MovieSummaryDto.class, () -> {
+            Movie movie = writeCoalescer.createMovie(movieInDto);
+            return new ResponseEntity<>(movieMapper.toSummary(movie), HttpStatus.OK);
+        });
 //        return ResponseEntity.ok(movieService.create(movieInDto));
 
     }
 
+    // Alta masiva de películas: array JSON, NDJSON o CSV con cabecera. Devuelve los errores por fila
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, BulkPayloadReader.TEXT_CSV_VALUE})
+    public ResponseEntity<BulkImportResult> createMoviesBulk(InputStream body,
+                                                             @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException {
+        try (MappingIterator<MovieInDto> rows = bulkPayloadReader.read(body, contentType, MovieInDto.class)) {
+            BulkImportResult result = bulkImportService.importMovies(rows);
+            return ResponseEntity.ok(result);
+        }
+    }
+
     // Actualizar película
     @PutMapping("/{id}")
-    public ResponseEntity<Movie> updateMovie(@PathVariable Long id, @RequestBody MovieInDto movieInDto) throws MovieNotFoundException{
-        logger.info("BEGIN updateMovie");
+    public ResponseEntity<MovieSummaryDto> updateMovie(@PathVariable Long id, @RequestBody MovieInDto movieInDto) throws MovieNotFoundException{
         Movie movie = movieService.update(id, movieInDto);
-        logger.info("END updateMovie");
-        return new ResponseEntity<>(movie, HttpStatus.OK);
+        return new ResponseEntity<>(movieMapper.toSummary(movie), HttpStatus.OK);
 
 
 //        return ResponseEntity.ok(movieService.update(id, movieInDto));
     }
     // Actualizar Tabla parcialmente
     @PatchMapping ("/{id}")
-    public ResponseEntity<Movie> updateMoviePartial(@PathVariable Long id, @RequestBody Map<String, Object> updates) throws MovieNotFoundException{
-        logger.info("BEGIN updateMoviePartial");
-        Movie updatedMovie = movieService.updatePartial(id, updates);
-        logger.info("END updateMoviePartial");
-        return new ResponseEntity<>(updatedMovie, HttpStatus.OK);
+    public ResponseEntity<MovieSummaryDto> updateMoviePartial(@PathVariable Long id, @RequestBody Map<String, Object> updates,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws MovieNotFoundException{
+        Movie updatedMovie = movieService.updatePartial(id, updates, parseVersion(ifMatch));
+        // Mismo ETag que GET /movies/{id}, salvo que otro cambio se haya colado ya: entonces solo la version
+        String eTag = movieService.findValidator(id)
+                .map(ResourceValidator::getETag)
+                .filter(validator -> validator.startsWith("\"" + updatedMovie.getVersion() + "-"))
+                .orElse(String.valueOf(updatedMovie.getVersion()));
+        return ResponseEntity.ok().eTag(eTag).body(movieMapper.toSummary(updatedMovie));
 
 
 //        return ResponseEntity.ok(movieService.update(id, movieInDto));
     }
     @GetMapping("/release-date/{date}")
-    public ResponseEntity<List<Movie>> getByReleaseDate(@PathVariable("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        logger.info("BEGIN getByReleaseDate");
-        List<Movie> movies = movieService.findByReleaseDate(date);
-        logger.info("END getByReleaseDate");
+    public ResponseEntity<List<MovieSummaryDto>> getByReleaseDate(@PathVariable("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                                  @RequestParam(value = "expand", required = false) String expand) {
+        List<MovieSummaryDto> movies = movieService.toSummaries(movieService.findByReleaseDate(date), expandScreenings(expand));
         return new ResponseEntity<>(movies, HttpStatus.OK);
 //        return ResponseEntity.ok(movieService.findByReleaseDate(date));
     }
@@ -132,9 +225,7 @@ public class MovieController {
     // Eliminar película
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMovie(@PathVariable Long id) throws MovieNotFoundException {
-        logger.info("BEGIN deleteMovie");
         movieService.delete(id);
-        logger.info("END deleteMovie");
         return ResponseEntity.noContent().build();
     }
     // Manejo de excepción: Movie no encontrado
@@ -143,6 +234,80 @@ public class MovieController {
         logger.error(e.getMessage(), e);
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
     }
+    // ?expand=screenings incluye las sesiones en los listados; sin el parametro no se cargan
+    private static boolean expandScreenings(String expand) {
+        if (expand == null || expand.isBlank()) {
+            return false;
+        }
+        if (!expand.trim().equals("screenings")) {
+            throw new InvalidMovieQueryException("Cannot expand movies by: " + expand);
+        }
+        return true;
+    }
+
+    // If-Match con la version de la pelicula: "3", W/"3" o 3, o el ETag completo de GET ("3-2-1718...", se usa la
+    // parte anterior al primer guion). Sin cabecera o con * no se comprueba la version
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String version = ifMatch.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        version = version.replace("\"", "");
+        if (version.indexOf('-') > 0) {
+            version = version.substring(0, version.indexOf('-'));
+        }
+        try {
+            return Long.valueOf(version);
+        } catch (NumberFormatException e) {
+            throw new InvalidMoviePatchException("Invalid If-Match header: " + ifMatch);
+        }
+    }
+
+    // Manejo de excepción: PATCH con campos o valores no válidos
+    @ExceptionHandler(InvalidMoviePatchException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidMoviePatch(InvalidMoviePatchException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+    // Manejo de excepción: la pelicula ha cambiado desde la version que tenia el cliente
+    @ExceptionHandler({MovieVersionConflictException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<ErrorResponse> handleVersionConflict(RuntimeException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(409, e.getMessage()), HttpStatus.CONFLICT);
+    }
+    // Manejo de excepción: con la nueva duracion alguna sesion de la pelicula pisaria la siguiente de su sala
+    @ExceptionHandler(ScreeningConflictException.class)
+    public ResponseEntity<ErrorResponse> handleScreeningConflict(ScreeningConflictException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(409, e.getMessage()), HttpStatus.CONFLICT);
+    }
+    // Manejo de excepción: Idempotency-Key vacia o demasiado larga
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidIdempotencyKey(InvalidIdempotencyKeyException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+    // Manejo de excepción: la peticion original con esa Idempotency-Key aun no ha terminado
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyInUse(IdempotencyKeyInUseException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(409, e.getMessage()), HttpStatus.CONFLICT);
+    }
+    // Manejo de excepción: la misma Idempotency-Key con otro cuerpo
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(422, e.getMessage()), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    // Manejo de excepción: filtro u orden no válido
+    @ExceptionHandler(InvalidMovieQueryException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidMovieQuery(InvalidMovieQueryException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
     // Manejo de excepciones por validaciones incorrectas
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> MethodArgumentNotValidException(MethodArgumentNotValidException exception) {
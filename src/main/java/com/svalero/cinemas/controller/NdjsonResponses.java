@@ -0,0 +1,45 @@
+package com.svalero.cinemas.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Escribe una respuesta NDJSON (un objeto JSON por linea) a medida que se van leyendo los elementos,
+// sin cargar nunca el listado completo en memoria
+final class NdjsonResponses {
+
+    private static final int FLUSH_EVERY = 100;
+
+    private NdjsonResponses() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                int[] written = {0};
+                source.accept(item -> {
+                    try {
+                        generator.writeObject(item);
+                        if (++written[0] % FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeRaw('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,138 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningScheduleFilter;
+import com.svalero.cinemas.exception.InvalidMovieQueryException;
+import com.svalero.cinemas.exception.InvalidScreeningQueryException;
+import com.svalero.cinemas.repository.ReactiveReadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Function;
+
+// Version reactiva de GET /movies, GET /movies/{id} y GET /screenings, con los mismos parametros y el mismo JSON que
+// MovieController y ScreeningController. Con Accept: application/x-ndjson o text/event-stream los listados se envian
+// fila a fila segun los va leyendo el cliente; si no, como un array JSON que tambien se escribe sin esperar al final
+public class ReactiveReadHandler {
+
+    private static final List<MediaType> STREAMING_TYPES = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveReadHandler.class);
+
+    private final ReactiveReadRepository repository;
+
+    public ReactiveReadHandler(ReactiveReadRepository repository) {
+        this.repository = repository;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/movies/{id:\\d+}", this::getMovieById)
+                .GET("/movies", this::getAllMovies)
+                .GET("/screenings", this::getAllScreenings)
+                .onError(InvalidMovieQueryException.class, this::badRequest)
+                .onError(InvalidScreeningQueryException.class, this::badRequest)
+                .build();
+    }
+
+    Mono<ServerResponse> getAllMovies(ServerRequest request) {
+        return Mono.fromCallable(() -> movieFilter(request))
+                .flatMap(filter -> list(request, repository.findMovies(filter), MovieSummaryDto.class));
+    }
+
+    // Con sus sesiones, como GET /movies/{id}
+    Mono<ServerResponse> getMovieById(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return repository.findMovie(id)
+                .zipWith(repository.findScreeningsByMovie(id).collectList(), (movie, screenings) -> {
+                    movie.setScreenings(screenings);
+                    return movie;
+                })
+                .flatMap(movie -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(movie))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    Mono<ServerResponse> getAllScreenings(ServerRequest request) {
+        return Mono.fromCallable(() -> screeningFilter(request))
+                .flatMap(filter -> list(request, repository.findScreenings(filter), ScreeningOutDto.class));
+    }
+
+    private static <T> Mono<ServerResponse> list(ServerRequest request, Flux<T> items, Class<T> type) {
+        MediaType contentType = request.headers().accept().stream()
+                .flatMap(accepted -> STREAMING_TYPES.stream().filter(accepted::equalsTypeAndSubtype))
+                .findFirst()
+                .orElse(MediaType.APPLICATION_JSON);
+        return ServerResponse.ok().contentType(contentType).body(items, type);
+    }
+
+    private Mono<ServerResponse> badRequest(Throwable e, ServerRequest request) {
+        logger.error(e.getMessage(), e);
+        return ServerResponse.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ErrorResponse.generalError(400, e.getMessage()));
+    }
+
+    // Los parametros se leen dentro del Mono para que un valor no valido llegue a onError como una respuesta 400
+    private static MovieFilter movieFilter(ServerRequest request) {
+        MovieFilter filter = new MovieFilter();
+        filter.setTitle(request.queryParam("title").orElse(null));
+        filter.setGenre(request.queryParam("genre").orElse(null));
+        filter.setDurationMinutes(movieParam(request, "durationMinutes", Integer::valueOf));
+        filter.setMinDuration(movieParam(request, "minDuration", Integer::valueOf));
+        filter.setMaxDuration(movieParam(request, "maxDuration", Integer::valueOf));
+        filter.setReleasedFrom(movieParam(request, "releasedFrom", LocalDate::parse));
+        filter.setReleasedTo(movieParam(request, "releasedTo", LocalDate::parse));
+        filter.setCurrentlyShowing(movieParam(request, "currentlyShowing", ReactiveReadHandler::parseBoolean));
+        return filter;
+    }
+
+    private static ScreeningScheduleFilter screeningFilter(ServerRequest request) {
+        ScreeningScheduleFilter filter = new ScreeningScheduleFilter();
+        filter.setFrom(screeningParam(request, "from", LocalDateTime::parse));
+        filter.setTo(screeningParam(request, "to", LocalDateTime::parse));
+        filter.setRoom(request.queryParam("room").orElse(null));
+        filter.setSubtitled(screeningParam(request, "subtitled", ReactiveReadHandler::parseBoolean));
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().isBefore(filter.getTo())) {
+            throw new InvalidScreeningQueryException("'from' must be before 'to'");
+        }
+        return filter;
+    }
+
+    private static <T> T movieParam(ServerRequest request, String name, Function<String, T> parser) {
+        try {
+            return request.queryParam(name).map(parser).orElse(null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidMovieQueryException("Invalid value for '" + name + "'");
+        }
+    }
+
+    private static <T> T screeningParam(ServerRequest request, String name, Function<String, T> parser) {
+        try {
+            return request.queryParam(name).map(parser).orElse(null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidScreeningQueryException("Invalid value for '" + name + "'");
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException(value);
+        }
+        return Boolean.valueOf(value);
+    }
+}
@@ -0,0 +1,98 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.domain.dto.ReservationInDto;
+import com.svalero.cinemas.domain.dto.ReservationOutDto;
+import com.svalero.cinemas.domain.dto.SeatMapDto;
+import com.svalero.cinemas.exception.InvalidReservationException;
+import com.svalero.cinemas.exception.ReservationNotFoundException;
+import com.svalero.cinemas.exception.ScreeningNotFoundException;
+import com.svalero.cinemas.exception.SeatUnavailableException;
+import com.svalero.cinemas.service.ReservationService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+public class ReservationController {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    private final Logger logger = LoggerFactory.getLogger(ReservationController.class);
+
+    // Cambia con cada venta: no se guarda en ninguna cache
+    @GetMapping("/screenings/{screeningId}/seats")
+    public ResponseEntity<SeatMapDto> getSeatMap(@PathVariable Long screeningId) {
+        SeatMapDto seatMap = reservationService.getSeatMap(screeningId);
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(seatMap);
+    }
+
+    // Retiene las butacas; hay que confirmar la reserva antes de que caduque (expiresAt)
+    @PostMapping("/screenings/{screeningId}/reservations")
+    public ResponseEntity<ReservationOutDto> holdSeats(@PathVariable Long screeningId,
+                                                       @Valid @RequestBody ReservationInDto reservationInDto) {
+        ReservationOutDto reservation = reservationService.hold(screeningId, reservationInDto);
+        return new ResponseEntity<>(reservation, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/screenings/{screeningId}/reservations/{reservationId}/confirm")
+    public ResponseEntity<ReservationOutDto> confirmReservation(@PathVariable Long screeningId, @PathVariable String reservationId) {
+        ReservationOutDto reservation = reservationService.confirm(screeningId, reservationId);
+        return ResponseEntity.ok(reservation);
+    }
+
+    @DeleteMapping("/screenings/{screeningId}/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable Long screeningId, @PathVariable String reservationId) {
+        reservationService.release(screeningId, reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler({ScreeningNotFoundException.class, ReservationNotFoundException.class})
+    public ResponseEntity<ErrorResponse> handleNotFound(RuntimeException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(404, e.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(SeatUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleSeatUnavailable(SeatUnavailableException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(409, e.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvalidReservationException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidReservation(InvalidReservationException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<ErrorResponse> handleMethodArgumentNotValid(MethodArgumentNotValidException exception) {
+        Map<String, String> errors = new HashMap<>();
+        exception.getBindingResult().getAllErrors().forEach(error -> {
+            String fieldName = ((FieldError) error).getField();
+            String message = error.getDefaultMessage();
+            errors.put(fieldName, message);
+        });
+        logger.error(exception.getMessage(), exception);
+
+        return new ResponseEntity<>(ErrorResponse.validationError(errors), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleException(Exception exception) {
+        ErrorResponse error = ErrorResponse.generalError(500, "Internal Server Error");
+        logger.error(exception.getMessage(), exception);
+        return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+}
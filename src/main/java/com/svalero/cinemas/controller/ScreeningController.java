@@ -1,20 +1,41 @@
 package com.svalero.cinemas.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.domain.dto.BulkImportResult;
+import com.svalero.cinemas.domain.dto.CursorPage;
 import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.domain.dto.ResourceValidator;
 import com.svalero.cinemas.domain.dto.ScreeningInDto;
 import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningScheduleFilter;
+import com.svalero.cinemas.exception.IdempotencyKeyInUseException;
+import com.svalero.cinemas.exception.IdempotencyKeyReusedException;
+import com.svalero.cinemas.exception.InvalidIdempotencyKeyException;
+import com.svalero.cinemas.exception.InvalidScreeningQueryException;
+import com.svalero.cinemas.exception.ScreeningConflictException;
 import com.svalero.cinemas.exception.ScreeningNotFoundException;
+import com.svalero.cinemas.service.BulkImportService;
 import com.svalero.cinemas.service.ScreeningService;
+import com.svalero.cinemas.service.WriteCoalescer;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,45 +46,92 @@ public class ScreeningController {
     @Autowired
     private ScreeningService screeningService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkPayloadReader bulkPayloadReader;
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
+    @Value("${cinemas.http.cache.screening-max-age:30s}")
+    private Duration screeningMaxAge;
+
+    @Value("${cinemas.http.cache.schedule-max-age:10s}")
+    private Duration scheduleMaxAge;
+
     private final Logger logger = LoggerFactory.getLogger(MovieController.class);
 
+    // Sin filtros devuelve todas las sesiones de la base de datos; con from/to/room/subtitled, la programacion desde el
+    // indice en memoria. El ETag sale del mismo sitio que la respuesta: con If-None-Match responde 304 sin buscar ni
+    // serializar nada
     @GetMapping("/screenings")
-    public ResponseEntity<List<ScreeningOutDto>> getAllScreenings() {
-        logger.info("BEGIN Allscreenings");
-        List<ScreeningOutDto> screenings = screeningService.findAll();
-        logger.info("END Allscreeenings");
-        return ResponseEntity.ok(screenings);
+    public ResponseEntity<List<ScreeningOutDto>> getAllScreenings(@ModelAttribute ScreeningScheduleFilter filter, WebRequest request) {
+        ResponseEntity<List<ScreeningOutDto>> screenings = filter.hasAnyFilter()
+                ? ConditionalResponses.of(request, screeningService.findScheduleValidator(),
+                        ConditionalResponses.maxAge(scheduleMaxAge), () -> screeningService.findSchedule(filter))
+                : ConditionalResponses.of(request, screeningService.findListValidator(),
+                        ConditionalResponses.maxAge(scheduleMaxAge), screeningService::findAll);
+        return screenings;
+    }
+
+    @GetMapping(value = "/screenings", params = "limit")
+    public ResponseEntity<CursorPage<ScreeningOutDto>> getScreeningsPage(@RequestParam(value = "after", required = false) Long after,
+                                                                         @RequestParam(value = "limit") int limit) {
+        CursorPage<ScreeningOutDto> page = screeningService.findPage(after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/screenings/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllScreenings() {
+        return NdjsonResponses.of(objectMapper, screeningService::streamAll);
     }
 
     @GetMapping("/screenings/{screeningId}")
-    public ResponseEntity<ScreeningOutDto> getScreeningById(@PathVariable Long screeningId) throws ScreeningNotFoundException {
-        logger.info("BEGIN getScreeningById");
-        ScreeningOutDto screening = screeningService.findById(screeningId);
-        logger.info("END screeningsById");
-        return ResponseEntity.ok(screening);
+    public ResponseEntity<ScreeningOutDto> getScreeningById(@PathVariable Long screeningId, WebRequest request) throws ScreeningNotFoundException {
+        ResourceValidator validator = screeningService.findValidator(screeningId)
+                .orElseThrow(() -> new ScreeningNotFoundException("Screening with ID " + screeningId + " not found"));
+        ResponseEntity<ScreeningOutDto> screening = ConditionalResponses.of(request, validator,
+                ConditionalResponses.maxAge(screeningMaxAge), () -> screeningService.findById(screeningId));
+        return screening;
     }
 
+    // Con Idempotency-Key un reintento devuelve la sesion ya creada; las altas simultaneas se guardan juntas
     @PostMapping("/screenings")
-    public ResponseEntity<ScreeningOutDto> addScreening(@Valid @RequestBody ScreeningInDto screeningInDto) throws ScreeningNotFoundException {
-        logger.info("BEGIN addScreening");
-        ScreeningOutDto addScreening = screeningService.add(screeningInDto);
-        logger.info("END addScreening");
-        return ResponseEntity.status(HttpStatus.CREATED).body(addScreening);
+    public ResponseEntity<ScreeningOutDto> addScreening(@Valid @RequestBody ScreeningInDto screeningInDto,
+                                                        @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws ScreeningNotFoundException {
+        return idempotentRequests.execute("POST /screenings", idempotencyKey, screeningInDto, ScreeningOutDto.class, () -> {
+            ScreeningOutDto addScreening = writeCoalescer.addScreening(screeningInDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(addScreening);
+        });
+    }
+
+    // Alta masiva de sesiones: array JSON, NDJSON o CSV con cabecera. Devuelve los errores por fila
+    @PostMapping(value = "/screenings/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, BulkPayloadReader.TEXT_CSV_VALUE})
+    public ResponseEntity<BulkImportResult> addScreeningsBulk(InputStream body,
+                                                              @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException {
+        try (MappingIterator<ScreeningInDto> rows = bulkPayloadReader.read(body, contentType, ScreeningInDto.class)) {
+            BulkImportResult result = bulkImportService.importScreenings(rows);
+            return ResponseEntity.ok(result);
+        }
     }
 
     @PutMapping("/screenings/{screeningId}")
     public ResponseEntity<ScreeningOutDto> modifyScreening(@Valid @PathVariable Long screeningId, @RequestBody ScreeningInDto screeningInDto) throws ScreeningNotFoundException {
-        logger.info("BEGIN modifyScreening");
         ScreeningOutDto modifyScreening = screeningService.modify(screeningId, screeningInDto);
-        logger.info("END modifyScreening");
         return new ResponseEntity<>(modifyScreening, HttpStatus.OK);
     }
 
     @DeleteMapping("/screenings/{screeningId}")
     public ResponseEntity<Void> deleteScreening(@PathVariable Long screeningId) throws ScreeningNotFoundException {
-        logger.info("BEGIN deleteScreening");
         screeningService.delete(screeningId);
-        logger.info("END deleteScreening");
         return ResponseEntity.noContent().build();
     }
 
@@ -73,6 +141,36 @@ public class ScreeningController {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
     }
 
+    @ExceptionHandler(ScreeningConflictException.class)
+    public ResponseEntity<ErrorResponse> handleScreeningConflict(ScreeningConflictException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(409, e.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvalidScreeningQueryException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidScreeningQuery(InvalidScreeningQueryException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidIdempotencyKey(InvalidIdempotencyKeyException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyInUse(IdempotencyKeyInUseException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(409, e.getMessage()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(422, e.getMessage()), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> MethodArgumentNotValidException(MethodArgumentNotValidException exception) {
         Map<String, String> errors = new HashMap<>();
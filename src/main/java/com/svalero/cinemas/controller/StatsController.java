@@ -0,0 +1,63 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.ErrorResponse;
+import com.svalero.cinemas.domain.dto.ScreeningStatsDto;
+import com.svalero.cinemas.exception.InvalidStatsQueryException;
+import com.svalero.cinemas.service.ScreeningStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Numero de sesiones y precio medio por pelicula, sala, dia y genero, con los dias de las sesiones en [from, to]
+@RestController
+public class StatsController {
+
+    @Autowired
+    private ScreeningStatsService screeningStatsService;
+
+    private final Logger logger = LoggerFactory.getLogger(StatsController.class);
+
+    @GetMapping("/stats/movies")
+    public ResponseEntity<List<ScreeningStatsDto>> getStatsByMovie(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(screeningStatsService.findByMovie(from, to));
+    }
+
+    @GetMapping("/stats/rooms")
+    public ResponseEntity<List<ScreeningStatsDto>> getStatsByRoom(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(screeningStatsService.findByRoom(from, to));
+    }
+
+    @GetMapping("/stats/days")
+    public ResponseEntity<List<ScreeningStatsDto>> getStatsByDay(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(screeningStatsService.findByDay(from, to));
+    }
+
+    @GetMapping("/stats/genres")
+    public ResponseEntity<List<ScreeningStatsDto>> getStatsByGenre(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(screeningStatsService.findByGenre(from, to));
+    }
+
+    @ExceptionHandler(InvalidStatsQueryException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidStatsQuery(InvalidStatsQueryException e) {
+        logger.error(e.getMessage(), e);
+        return new ResponseEntity<>(ErrorResponse.generalError(400, e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+}
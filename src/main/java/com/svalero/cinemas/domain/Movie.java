@@ -1,13 +1,22 @@
 package com.svalero.cinemas.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.svalero.cinemas.repository.CacheRegions;
+import com.svalero.cinemas.service.ChangeFeedListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -15,10 +24,16 @@ import java.util.List;
 @AllArgsConstructor
 @Entity
 @Table(name = "movies")
+@Cacheable
+@EntityListeners(ChangeFeedListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.MOVIE)
+@DynamicUpdate
 public class Movie {
 
+    // Secuencia con asignacion por bloques (pooled) para que Hibernate pueda agrupar los inserts en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_seq")
+    @SequenceGenerator(name = "movies_seq", sequenceName = "movies_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -35,5 +50,19 @@ public class Movie {
 
     @OneToMany(mappedBy = "movie", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JsonIgnoreProperties("movie")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.MOVIE_SCREENINGS)
     private List<Screening> screenings;
+
+    // Bloqueo optimista: cada UPDATE comprueba e incrementa la version
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
+    // Ultimo cambio de la pelicula o de la lista de sesiones (al borrar o mover una sesion se actualiza sin subir
+    // la version). Con la version y las sesiones forma el ETag de GET /movies/{id}
+    @UpdateTimestamp
+    @OptimisticLock(excluded = true)
+    @Column(nullable = false)
+    private LocalDateTime lastModified;
 }
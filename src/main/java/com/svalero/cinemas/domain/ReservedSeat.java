@@ -0,0 +1,36 @@
+package com.svalero.cinemas.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Butaca vendida de una sesion. Se guarda el id de la sesion y no la relacion: se escriben por lotes
+// desde memoria (ReservedSeatWriter) y no hace falta cargar la sesion para eso
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "ReservedSeat")
+@Table(name = "reserved_seats")
+public class ReservedSeat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reserved_seats_seq")
+    @SequenceGenerator(name = "reserved_seats_seq", sequenceName = "reserved_seats_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long screeningId;
+
+    // Posicion en el plano de la sala: (fila - 1) * butacasPorFila + (butaca - 1)
+    @Column(nullable = false)
+    private int seatIndex;
+
+    @Column(nullable = false, length = 36)
+    private String reservationId;
+
+    @Column(nullable = false)
+    private LocalDateTime reservedAt;
+}
@@ -1,11 +1,16 @@
 package com.svalero.cinemas.domain;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.svalero.cinemas.repository.CacheRegions;
+import com.svalero.cinemas.service.ChangeFeedListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
@@ -14,10 +19,15 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity(name = "Screening")
 @Table(name = "screenings")
+@Cacheable
+@EntityListeners(ChangeFeedListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SCREENING)
 public class Screening {
 
+    // Secuencia con asignacion por bloques (pooled) para que Hibernate pueda agrupar los inserts en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "screenings_seq")
+    @SequenceGenerator(name = "screenings_seq", sequenceName = "screenings_seq", allocationSize = 50)
     private Long id;
 
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
@@ -37,4 +47,9 @@ public class Screening {
     @ManyToOne
     @JoinColumn(name = "movie_id", nullable = false)
     private Movie movie;
+
+    // Ultimo cambio de la sesion, para el ETag y el Last-Modified de GET /screenings/{id}
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime lastModified;
 }
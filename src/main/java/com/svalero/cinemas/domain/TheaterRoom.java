@@ -0,0 +1,32 @@
+package com.svalero.cinemas.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Sala con su plano de butacas: seatRows filas de seatsPerRow butacas. La fila tambien sirve de lock
+// para las altas de sesiones de la sala (RoomScheduleGuard)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity(name = "TheaterRoom")
+@Table(name = "theater_rooms")
+public class TheaterRoom {
+
+    // Salas que aun no tienen plano propio (las crea RoomScheduleGuard con los valores por defecto de la tabla)
+    public static final int DEFAULT_SEAT_ROWS = 10;
+    public static final int DEFAULT_SEATS_PER_ROW = 20;
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private int seatRows;
+
+    @Column(nullable = false)
+    private int seatsPerRow;
+}
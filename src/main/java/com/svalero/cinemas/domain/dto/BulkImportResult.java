@@ -0,0 +1,25 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkImportResult {
+
+    // Como mucho se devuelve el detalle de este numero de errores, el resto solo se cuenta
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long received;
+    private long imported;
+    private long failed;
+    private List<BulkRowError> errors = new ArrayList<>();
+
+    public void addError(long row, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new BulkRowError(row, message));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRowError {
+
+    // Numero de fila dentro del fichero enviado, empezando en 1
+    private long row;
+    private String message;
+}
@@ -0,0 +1,32 @@
+package com.svalero.cinemas.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Un cambio confirmado de una pelicula o una sesion en GET /changes. offset crece de uno en uno y es el id del evento
+// SSE: con el se retoma el feed. En las bajas solo viene el id; en altas y cambios, el estado ya guardado
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEventDto {
+
+    public static final String MOVIE = "movie";
+    public static final String SCREENING = "screening";
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    private long offset;
+    private String entity;
+    private String action;
+    private Long id;
+    private LocalDateTime committedAt;
+    private MovieSummaryDto movie;
+    private ScreeningOutDto screening;
+}
@@ -0,0 +1,34 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    public static final int MAX_LIMIT = 500;
+
+    private List<T> items;
+    // id del ultimo elemento devuelto, se envia como "after" para pedir la siguiente pagina (null si no hay mas)
+    private Long nextCursor;
+
+    // Ajusta el limite pedido por el cliente a un rango razonable
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // Construye la pagina a partir de una consulta que ha pedido limit + 1 filas para saber si quedan mas
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, Long> idOf) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(items, idOf.apply(items.get(limit - 1)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Filtros opcionales del listado de peliculas, cualquier combinacion de ellos se resuelve en una sola consulta
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieFilter {
+
+    private String title;
+    private String genre;
+    private Integer durationMinutes;
+    private Integer minDuration;
+    private Integer maxDuration;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedTo;
+    private Boolean currentlyShowing;
+}
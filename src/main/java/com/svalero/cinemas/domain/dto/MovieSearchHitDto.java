@@ -0,0 +1,20 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Resultado de GET /movies/search, sacado entero del indice de busqueda. score: relevancia (mayor, mejor)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieSearchHitDto {
+    private Long id;
+    private String title;
+    private String genre;
+    private LocalDate releaseDate;
+    private boolean currentlyShowing;
+    private float score;
+}
@@ -0,0 +1,28 @@
+package com.svalero.cinemas.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Pelicula tal como sale en las respuestas. Las sesiones solo se incluyen en el detalle o con ?expand=screenings;
+// si no, el campo no aparece
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieSummaryDto {
+    private Long id;
+    private String title;
+    private String genre;
+    private int durationMinutes;
+    private LocalDate releaseDate;
+    private boolean currentlyShowing;
+    private Long version;
+    private LocalDateTime lastModified;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ScreeningOutDto> screenings;
+}
@@ -0,0 +1,22 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Una pelicula en cartelera con sus proximas sesiones (como mucho cinemas.now-showing.screenings-per-room por sala),
+// ordenadas por hora
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NowShowingMovieDto {
+    private Long id;
+    private String title;
+    private String genre;
+    private int durationMinutes;
+    private LocalDate releaseDate;
+    private List<ScreeningOutDto> nextScreenings;
+}
@@ -0,0 +1,28 @@
+package com.svalero.cinemas.domain.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Butacas concretas (seats) o cualquier grupo de quantity butacas libres, una de las dos
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationInDto {
+
+    public static final int MAX_SEATS = 10;
+
+    @Valid
+    @Size(max = MAX_SEATS, message = "At most " + MAX_SEATS + " seats per reservation")
+    private List<SeatDto> seats;
+
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = MAX_SEATS, message = "At most " + MAX_SEATS + " seats per reservation")
+    private Integer quantity;
+}
@@ -0,0 +1,27 @@
+package com.svalero.cinemas.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationOutDto {
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+
+    private String id;
+    private Long screeningId;
+    private String status;
+    private List<SeatDto> seats;
+    private double totalPrice;
+    // Hasta cuando se guardan las butacas sin confirmar; null una vez confirmada
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime expiresAt;
+}
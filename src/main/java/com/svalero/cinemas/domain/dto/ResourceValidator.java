@@ -0,0 +1,39 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// ETag (fuerte, ya entre comillas) y fecha de ultimo cambio de un recurso, para responder 304 sin leerlo entero.
+// lastModified es null cuando el recurso solo tiene ETag
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceValidator {
+    private String eTag;
+    private LocalDateTime lastModified;
+
+    // "a-b-c" con las partes que identifican el estado del recurso
+    public static String eTagOf(Object... parts) {
+        StringBuilder eTag = new StringBuilder("\"");
+        for (int i = 0; i < parts.length; i++) {
+            eTag.append(i == 0 ? "" : "-").append(parts[i]);
+        }
+        return eTag.append('"').toString();
+    }
+
+    // Microsegundos desde 1970, la misma precision que guardan las columnas last_modified
+    public static long micros(LocalDateTime time) {
+        return time == null ? 0 : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    public static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return first.isAfter(second) ? first : second;
+    }
+}
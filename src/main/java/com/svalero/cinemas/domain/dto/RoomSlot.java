@@ -0,0 +1,19 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Hueco que ocupa una sesion en su sala: desde la hora de inicio hasta el final de la pelicula
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSlot {
+    private Long screeningId;
+    private Long movieId;
+    private String theaterRoom;
+    private LocalDateTime screeningTime;
+    private int durationMinutes;
+}
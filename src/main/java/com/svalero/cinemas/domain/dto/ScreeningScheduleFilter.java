@@ -0,0 +1,27 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// Filtros de la programacion de sesiones: sesiones que empiezan en [from, to), de una sala y/o subtituladas.
+// Se resuelven contra el indice en memoria, sin consultar la base de datos
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScreeningScheduleFilter {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+    private String room;
+    private Boolean subtitled;
+
+    public boolean hasAnyFilter() {
+        return from != null || to != null || room != null || subtitled != null;
+    }
+}
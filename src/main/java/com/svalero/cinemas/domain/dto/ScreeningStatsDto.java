@@ -0,0 +1,24 @@
+package com.svalero.cinemas.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Una fila de GET /stats/...: el grupo (pelicula, sala, dia o genero, solo el que corresponda), cuantas sesiones
+// tiene y su precio medio
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ScreeningStatsDto {
+    private Long movieId;
+    private String title;
+    private String theaterRoom;
+    private LocalDate day;
+    private String genre;
+    private long screeningCount;
+    private double averagePrice;
+}
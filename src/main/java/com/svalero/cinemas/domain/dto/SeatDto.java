@@ -0,0 +1,22 @@
+package com.svalero.cinemas.domain.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Butaca del plano de la sala, fila y numero empiezan en 1
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatDto {
+
+    @NotNull(message = "Row is required")
+    @Min(value = 1, message = "Row must be at least 1")
+    private Integer row;
+
+    @NotNull(message = "Seat is required")
+    @Min(value = 1, message = "Seat must be at least 1")
+    private Integer seat;
+}
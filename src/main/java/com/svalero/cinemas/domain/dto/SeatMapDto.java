@@ -0,0 +1,20 @@
+package com.svalero.cinemas.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Plano de una sesion: una cadena por fila con '.' para las butacas libres y 'X' para las retenidas o vendidas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapDto {
+    private Long screeningId;
+    private String theaterRoom;
+    private int seatRows;
+    private int seatsPerRow;
+    private int available;
+    private List<String> rows;
+}
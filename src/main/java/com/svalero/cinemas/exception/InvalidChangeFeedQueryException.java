@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class InvalidChangeFeedQueryException extends RuntimeException {
+    public InvalidChangeFeedQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class InvalidMoviePatchException extends RuntimeException {
+    public InvalidMoviePatchException(String message) {
+        super(message);
+    }
+}
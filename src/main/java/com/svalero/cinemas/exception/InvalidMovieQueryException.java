@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class InvalidMovieQueryException extends RuntimeException {
+    public InvalidMovieQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class InvalidReservationException extends RuntimeException {
+    public InvalidReservationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class InvalidScreeningQueryException extends RuntimeException {
+    public InvalidScreeningQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class InvalidStatsQueryException extends RuntimeException {
+    public InvalidStatsQueryException(String message) {
+        super(message);
+    }
+}
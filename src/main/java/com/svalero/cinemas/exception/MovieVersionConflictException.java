@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class MovieVersionConflictException extends RuntimeException {
+    public MovieVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.svalero.cinemas.exception;
+
+public class SeatUnavailableException extends RuntimeException {
+    public SeatUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.svalero.cinemas.mapper;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+// Mapper generado en compilacion por MapStruct, sin reflexion en tiempo de ejecucion
+@Mapper(componentModel = "spring")
+public interface MovieMapper {
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "screenings", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    Movie toEntity(MovieInDto movieInDto);
+
+    // Copia los datos del DTO sobre una pelicula ya existente
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "screenings", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    void updateEntity(MovieInDto movieInDto, @MappingTarget Movie movie);
+
+    // Sin tocar la coleccion perezosa de sesiones: las añade el servicio cuando hacen falta
+    @Mapping(target = "screenings", ignore = true)
+    MovieSummaryDto toSummary(Movie movie);
+}
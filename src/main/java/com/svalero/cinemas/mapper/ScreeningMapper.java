@@ -0,0 +1,22 @@
+package com.svalero.cinemas.mapper;
+
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+// Mapper generado en compilacion por MapStruct, sin reflexion en tiempo de ejecucion
+@Mapper(componentModel = "spring")
+public interface ScreeningMapper {
+
+    // La pelicula la resuelve el servicio a partir de movieId
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "movie", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    Screening toEntity(ScreeningInDto screeningInDto);
+
+    @Mapping(target = "movieId", source = "movie.id")
+    @Mapping(target = "movieTitle", source = "movie.title")
+    ScreeningOutDto toOutDto(Screening screening);
+}
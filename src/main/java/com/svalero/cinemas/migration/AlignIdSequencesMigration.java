@@ -0,0 +1,67 @@
+package com.svalero.cinemas.migration;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+// V3: las bases de datos que venian de ddl-auto=update con ids de IDENTITY tienen secuencias que empiezan en 1.
+// Se adelanta cada secuencia por encima del id mas alto (mas un bloque de asignacion completo, Hibernate reserva
+// los ids por bloques de 50) para que los nuevos ids no choquen con los existentes. Solo hacia delante: una
+// secuencia que ya va por delante (alineada al arrancar por versiones anteriores) no se toca.
+// Spring Boot registra en Flyway las migraciones Java que son beans (la version no sale del nombre de la clase)
+@Component
+public class AlignIdSequencesMigration implements JavaMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final Map<String, String> SEQUENCES = Map.of("movies", "movies_seq", "screenings", "screenings_seq");
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("3");
+    }
+
+    @Override
+    public String getDescription() {
+        return "Align id sequences";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (Map.Entry<String, String> sequence : SEQUENCES.entrySet()) {
+                long maxId = queryLong(statement, "select coalesce(max(id), 0) from " + sequence.getKey());
+                if (maxId == 0) {
+                    continue;
+                }
+                // Pedir un valor dice por donde va la secuencia; como mucho se pierde un bloque de ids
+                long next = queryLong(statement, "select next value for " + sequence.getValue());
+                if (next - ALLOCATION_SIZE + 1 <= maxId) {
+                    statement.execute("alter sequence " + sequence.getValue() + " restart with " + (maxId + ALLOCATION_SIZE + 1));
+                }
+            }
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
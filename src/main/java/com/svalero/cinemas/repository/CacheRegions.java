@@ -0,0 +1,16 @@
+package com.svalero.cinemas.repository;
+
+// Nombres de las regiones de la cache de segundo nivel; los tamaños de cada una se ajustan en application.conf
+public final class CacheRegions {
+
+    public static final String MOVIE = "movie";
+    public static final String MOVIE_SCREENINGS = "movie-screenings";
+    public static final String SCREENING = "screening";
+
+    public static final String MOVIES_BY_TITLE = "movies-by-title";
+    public static final String MOVIES_BY_GENRE = "movies-by-genre";
+    public static final String MOVIES_BY_CURRENTLY_SHOWING = "movies-by-currently-showing";
+
+    private CacheRegions() {
+    }
+}
@@ -1,36 +1,89 @@
 package com.svalero.cinemas.repository;
 
 import com.svalero.cinemas.domain.Movie;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface MovieRepository extends CrudRepository<Movie, Long> {
+public interface MovieRepository extends CrudRepository<Movie, Long>, JpaSpecificationExecutor<Movie> {
 
     // Método para obtener todos los usuarios
     List<Movie> findAll();
 
     // Método para buscar una pelicula por su titulo
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.MOVIES_BY_TITLE)})
     List<Movie> findByTitle(String title);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.MOVIES_BY_GENRE)})
     List<Movie> findByGenre(String genre);
 
-    List<Movie> findByDurationMinutes(Integer durationMinutes);
-
     List<Movie> findByReleaseDate(LocalDate releaseDate);
 
-    List<Movie> findByTitleAndGenreAndDurationMinutes(String title,String genre, Integer durationMinutes);
+    @Query("select m FROM Movie m WHERE m.currentlyShowing = :currentlyShowing")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.MOVIES_BY_CURRENTLY_SHOWING)})
+    List<Movie> findAllMoviesByCurrentlyShowing(Boolean currentlyShowing);
 
-    List<Movie> findByTitleAndGenre(String title,String genre);
+    // Recorrido completo en streaming, hay que consumirlo dentro de una transaccion y cerrarlo al terminar
+    @Query("select m from Movie m order by m.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<Movie> streamAll();
 
-    List<Movie> findByTitleAndDurationMinutes(String title,Integer durationMinutes);
+    // La pelicula mas larga acota hasta donde hay que mirar hacia atras al buscar solapes en una sala
+    @Query("select coalesce(max(m.durationMinutes), 0) from Movie m")
+    int findMaxDurationMinutes();
 
-    List<Movie> findByGenreAndDurationMinutes(String genre,Integer durationMinutes);
+    // Duracion de cada pelicula, sin cargar las entidades
+    @Query("select m.id as id, m.durationMinutes as durationMinutes from Movie m")
+    List<MovieDuration> findAllDurations();
 
-    @Query("select m FROM Movie m WHERE m.currentlyShowing = :currentlyShowing")
-    List<Movie> findAllMoviesByCurrentlyShowing(Boolean currentlyShowing);
+    interface MovieDuration {
+        Long getId();
+
+        int getDurationMinutes();
+    }
+
+    // Lo necesario para el ETag de una pelicula con sus sesiones en una sola fila agregada, sin cargar ninguna entidad
+    @Query("select m.version as version, m.lastModified as lastModified, count(s.id) as screeningCount, "
+            + "max(s.lastModified) as screeningsLastModified "
+            + "from Movie m left join m.screenings s where m.id = :id group by m.id, m.version, m.lastModified")
+    Optional<MovieVersion> findVersionById(Long id);
+
+    interface MovieVersion {
+        Long getVersion();
+
+        LocalDateTime getLastModified();
+
+        long getScreeningCount();
+
+        LocalDateTime getScreeningsLastModified();
+    }
+
+    // Sesiones y precio medio por genero (GET /stats/genres) desde el resumen diario de las sesiones: el genero se
+    // toma de la pelicula al consultar, asi que cambiarlo no obliga a tocar el resumen. Se busca por su clave con
+    // una subconsulta, como el titulo en ScreeningRepository.findPriceStatsByMovie
+    @Query(nativeQuery = true, value = "select g.genre as genre, sum(g.screeningCount) as screeningCount, "
+            + "sum(g.priceTotal) / sum(g.screeningCount) as averagePrice "
+            + "from (select (select m.genre from movies m where m.id = d.movieId) as genre, d.screeningCount, d.priceTotal "
+            + "from (select d.movie_id as movieId, sum(d.screening_count) as screeningCount, sum(d.price_total) as priceTotal "
+            + "from screening_daily_stats d where d.stat_day between :from and :to group by d.movie_id) d) g "
+            + "group by g.genre order by g.genre")
+    List<GenrePriceStats> findPriceStatsByGenre(LocalDate from, LocalDate to);
+
+    interface GenrePriceStats extends ScreeningRepository.PriceStats {
+        String getGenre();
+    }
 
 }
 
@@ -0,0 +1,87 @@
+package com.svalero.cinemas.repository;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Predicados reutilizables para construir la consulta de peliculas a partir de los filtros recibidos
+public final class MovieSpecifications {
+
+    private MovieSpecifications() {
+    }
+
+    public static Specification<Movie> fromFilter(MovieFilter filter) {
+        List<Specification<Movie>> specs = new ArrayList<>();
+        if (hasText(filter.getTitle())) {
+            specs.add(titleEquals(filter.getTitle()));
+        }
+        if (hasText(filter.getGenre())) {
+            specs.add(genreEquals(filter.getGenre()));
+        }
+        if (filter.getDurationMinutes() != null) {
+            specs.add(durationEquals(filter.getDurationMinutes()));
+        }
+        if (filter.getMinDuration() != null || filter.getMaxDuration() != null) {
+            specs.add(durationBetween(filter.getMinDuration(), filter.getMaxDuration()));
+        }
+        if (filter.getReleasedFrom() != null || filter.getReleasedTo() != null) {
+            specs.add(releasedBetween(filter.getReleasedFrom(), filter.getReleasedTo()));
+        }
+        if (filter.getCurrentlyShowing() != null) {
+            specs.add(currentlyShowing(filter.getCurrentlyShowing()));
+        }
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<Movie> titleEquals(String title) {
+        return (root, query, cb) -> cb.equal(root.get("title"), title);
+    }
+
+    public static Specification<Movie> genreEquals(String genre) {
+        return (root, query, cb) -> cb.equal(root.get("genre"), genre);
+    }
+
+    public static Specification<Movie> durationEquals(int durationMinutes) {
+        return (root, query, cb) -> cb.equal(root.get("durationMinutes"), durationMinutes);
+    }
+
+    // Cualquiera de los dos extremos puede venir a null (rango abierto)
+    public static Specification<Movie> durationBetween(Integer min, Integer max) {
+        return (root, query, cb) -> {
+            if (min != null && max != null) {
+                return cb.between(root.get("durationMinutes"), min, max);
+            }
+            return min != null
+                    ? cb.greaterThanOrEqualTo(root.get("durationMinutes"), min)
+                    : cb.lessThanOrEqualTo(root.get("durationMinutes"), max);
+        };
+    }
+
+    public static Specification<Movie> releasedBetween(LocalDate from, LocalDate to) {
+        return (root, query, cb) -> {
+            if (from != null && to != null) {
+                return cb.between(root.get("releaseDate"), from, to);
+            }
+            return from != null
+                    ? cb.greaterThanOrEqualTo(root.get("releaseDate"), from)
+                    : cb.lessThanOrEqualTo(root.get("releaseDate"), to);
+        };
+    }
+
+    public static Specification<Movie> currentlyShowing(boolean currentlyShowing) {
+        return (root, query, cb) -> cb.equal(root.get("currentlyShowing"), currentlyShowing);
+    }
+
+    // Cursor de la paginacion: peliculas con id posterior al ultimo devuelto
+    public static Specification<Movie> idAfter(long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,174 @@
+package com.svalero.cinemas.repository;
+
+import com.svalero.cinemas.config.StatementRecordingDataSource;
+import com.svalero.cinemas.config.StatementRecordingDataSource.RecordedStatement;
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Al arrancar lanza cada consulta filtrada de los repositorios, graba el SQL que genera Hibernate con sus
+// parametros y lo repite con EXPLAIN. Si alguna recorre una tabla completa el arranque falla con el plan.
+// Los listados sin filtro (findAll, streamAll...) no se comprueban: recorrer la tabla es lo que tienen que hacer.
+// Necesita cinemas.query-plan-check.enabled=true (activo en los tests)
+@Component
+@ConditionalOnProperty(name = "cinemas.query-plan-check.enabled", havingValue = "true")
+public class QueryPlanChecker implements ApplicationRunner {
+
+    private final Logger logger = LoggerFactory.getLogger(QueryPlanChecker.class);
+
+    private final MovieRepository movieRepository;
+    private final ScreeningRepository screeningRepository;
+    private final TheaterRoomRepository theaterRoomRepository;
+    private final ReservedSeatRepository reservedSeatRepository;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public QueryPlanChecker(MovieRepository movieRepository, ScreeningRepository screeningRepository,
+                            TheaterRoomRepository theaterRoomRepository, ReservedSeatRepository reservedSeatRepository,
+                            DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.screeningRepository = screeningRepository;
+        this.theaterRoomRepository = theaterRoomRepository;
+        this.reservedSeatRepository = reservedSeatRepository;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        Map<String, List<RecordedStatement>> queries = new LinkedHashMap<>();
+        probes().forEach((name, probe) -> queries.put(name, StatementRecordingDataSource.record(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Sin cache de segundo nivel ni de consultas, para que todas lleguen a la base de datos
+                    entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                    probe.run();
+                }))));
+
+        List<String> fullScans = new ArrayList<>();
+        int checked = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            String database = connection.getMetaData().getDatabaseProductName();
+            if (!database.equals("H2") && !database.equals("MariaDB") && !database.equals("MySQL")) {
+                logger.warn("Query plan check skipped, EXPLAIN output of {} is not supported", database);
+                return;
+            }
+            for (Map.Entry<String, List<RecordedStatement>> query : queries.entrySet()) {
+                for (RecordedStatement statement : query.getValue()) {
+                    checked++;
+                    String fullScan = explain(connection, database, statement);
+                    if (fullScan != null) {
+                        fullScans.add(query.getKey() + ": " + statement.sql() + "\n" + fullScan);
+                    }
+                }
+            }
+        }
+        if (!fullScans.isEmpty()) {
+            throw new IllegalStateException("Repository queries doing a full table scan (missing index or migration?):\n\n"
+                    + String.join("\n\n", fullScans));
+        }
+        logger.info("Query plans checked: {} statements from {} repository queries, no full table scans", checked, queries.size());
+    }
+
+    // Devuelve el plan si hay algun recorrido completo de tabla, o null si todas las tablas se leen por indice
+    private String explain(Connection connection, String database, RecordedStatement statement) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("explain " + statement.sql())) {
+            statement.bindTo(explain);
+            try (ResultSet plan = explain.executeQuery()) {
+                if (database.equals("H2")) {
+                    plan.next();
+                    String text = plan.getString(1);
+                    return text.contains(".tableScan") ? text : null;
+                }
+                // MariaDB/MySQL: una fila por tabla. type=ALL sin ningun indice posible es un recorrido completo;
+                // con indices posibles el optimizador puede preferir recorrer una tabla pequeña y no es un fallo
+                StringBuilder scans = new StringBuilder();
+                while (plan.next()) {
+                    if ("ALL".equals(plan.getString("type")) && plan.getString("possible_keys") == null) {
+                        scans.append("table ").append(plan.getString("table")).append(": type=ALL, no possible keys\n");
+                    }
+                }
+                return scans.isEmpty() ? null : scans.toString();
+            }
+        }
+    }
+
+    // Una llamada por cada consulta con filtro de los repositorios y de MovieSpecifications
+    private Map<String, Runnable> probes() {
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        Map<String, Runnable> probes = new LinkedHashMap<>();
+        probes.put("MovieRepository.findById", () -> movieRepository.findById(1L));
+        probes.put("MovieRepository.findByTitle", () -> movieRepository.findByTitle("probe"));
+        probes.put("MovieRepository.findByGenre", () -> movieRepository.findByGenre("probe"));
+        probes.put("MovieRepository.findByReleaseDate", () -> movieRepository.findByReleaseDate(date));
+        probes.put("MovieRepository.findAllMoviesByCurrentlyShowing", () -> movieRepository.findAllMoviesByCurrentlyShowing(true));
+        probes.put("MovieSpecifications.title", movieFilter(filter -> filter.setTitle("probe")));
+        probes.put("MovieSpecifications.genre", movieFilter(filter -> filter.setGenre("probe")));
+        probes.put("MovieSpecifications.durationMinutes", movieFilter(filter -> filter.setDurationMinutes(120)));
+        probes.put("MovieSpecifications.durationBetween", movieFilter(filter -> {
+            filter.setMinDuration(90);
+            filter.setMaxDuration(120);
+        }));
+        probes.put("MovieSpecifications.releasedBetween", movieFilter(filter -> {
+            filter.setReleasedFrom(date);
+            filter.setReleasedTo(date.plusYears(1));
+        }));
+        probes.put("MovieSpecifications.currentlyShowing", movieFilter(filter -> filter.setCurrentlyShowing(true)));
+        probes.put("MovieSpecifications.idAfter", () -> movieRepository.findBy(MovieSpecifications.idAfter(0L),
+                query -> query.sortBy(Sort.by("id")).limit(10).all()));
+        probes.put("ScreeningRepository.findById", () -> screeningRepository.findById(1L));
+        probes.put("ScreeningRepository.findByTheaterRoom", () -> screeningRepository.findByTheaterRoom("probe"));
+        probes.put("ScreeningRepository.findBySubtitledTrue", screeningRepository::findBySubtitledTrue);
+        probes.put("ScreeningRepository.findByScreeningTimeAfter", () -> screeningRepository.findByScreeningTimeAfter(LocalDateTime.now()));
+        probes.put("ScreeningRepository.findWithMovieTitleById", () -> screeningRepository.findWithMovieTitleById(1L));
+        probes.put("ScreeningRepository.findWithMovieTitleByMovieIds", () -> screeningRepository.findWithMovieTitleByMovieIds(List.of(1L, 2L)));
+        probes.put("ScreeningRepository.findPageWithMovieTitle", () -> screeningRepository.findPageWithMovieTitle(0L, Limit.of(10)));
+        probes.put("MovieRepository.findMaxDurationMinutes", movieRepository::findMaxDurationMinutes);
+        probes.put("ScreeningRepository.findRoomSlots", () -> screeningRepository.findRoomSlots("probe",
+                date.atStartOfDay(), date.atStartOfDay().plusHours(3)));
+        probes.put("ScreeningRepository.findRoomSlotsByMovieId", () -> screeningRepository.findRoomSlotsByMovieId(1L));
+        probes.put("MovieRepository.findVersionById", () -> movieRepository.findVersionById(1L));
+        probes.put("ScreeningRepository.findVersionById", () -> screeningRepository.findVersionById(1L));
+        probes.put("TheaterRoomRepository.findById", () -> theaterRoomRepository.findById("probe"));
+        probes.put("ReservedSeatRepository.findSeatIndexesByScreeningId", () -> reservedSeatRepository.findSeatIndexesByScreeningId(1L));
+        probes.put("ScreeningRepository.findPriceStatsByMovie", () -> screeningRepository.findPriceStatsByMovie(date, date.plusDays(7)));
+        probes.put("MovieRepository.findPriceStatsByGenre", () -> movieRepository.findPriceStatsByGenre(date, date.plusDays(7)));
+        probes.put("ScreeningRepository.findPriceStatsByRoom", () -> screeningRepository.findPriceStatsByRoom(date, date.plusDays(7)));
+        probes.put("ScreeningRepository.findPriceStatsByDay", () -> screeningRepository.findPriceStatsByDay(date, date.plusDays(7)));
+        return probes;
+    }
+
+    private Runnable movieFilter(Consumer<MovieFilter> filterSetup) {
+        MovieFilter filter = new MovieFilter();
+        filterSetup.accept(filter);
+        return () -> movieRepository.findAll(MovieSpecifications.fromFilter(filter), Sort.unsorted());
+    }
+}
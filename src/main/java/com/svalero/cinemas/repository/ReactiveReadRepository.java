@@ -0,0 +1,142 @@
+package com.svalero.cinemas.repository;
+
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningScheduleFilter;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+
+// Las mismas lecturas que MovieRepository y ScreeningRepository pero sobre R2DBC: cada fila se emite segun la pide
+// el cliente y ninguna consulta ocupa un hilo mientras espera a la base de datos. Sin Hibernate ni cache de segundo
+// nivel: siempre se lee de la base de datos. Los filtros son los de MovieSpecifications y ScreeningScheduleIndex
+public class ReactiveReadRepository {
+
+    private static final String MOVIE_SELECT = "select id, title, genre, duration_minutes, release_date, "
+            + "currently_showing, version, last_modified from movies ";
+    private static final String SCREENING_SELECT = "select s.id, s.screening_time, s.theater_room, s.ticket_price, "
+            + "s.subtitled, m.id as movie_id, m.title as movie_title from screenings s join movies m on m.id = s.movie_id ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveReadRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<MovieSummaryDto> findMovies(MovieFilter filter) {
+        Where where = new Where();
+        if (hasText(filter.getTitle())) {
+            where.add("title = :title", "title", filter.getTitle());
+        }
+        if (hasText(filter.getGenre())) {
+            where.add("genre = :genre", "genre", filter.getGenre());
+        }
+        if (filter.getDurationMinutes() != null) {
+            where.add("duration_minutes = :duration", "duration", filter.getDurationMinutes());
+        }
+        if (filter.getMinDuration() != null) {
+            where.add("duration_minutes >= :minDuration", "minDuration", filter.getMinDuration());
+        }
+        if (filter.getMaxDuration() != null) {
+            where.add("duration_minutes <= :maxDuration", "maxDuration", filter.getMaxDuration());
+        }
+        if (filter.getReleasedFrom() != null) {
+            where.add("release_date >= :releasedFrom", "releasedFrom", filter.getReleasedFrom());
+        }
+        if (filter.getReleasedTo() != null) {
+            where.add("release_date <= :releasedTo", "releasedTo", filter.getReleasedTo());
+        }
+        if (filter.getCurrentlyShowing() != null) {
+            where.add("currently_showing = :currentlyShowing", "currentlyShowing", filter.getCurrentlyShowing());
+        }
+        return where.bind(databaseClient.sql(MOVIE_SELECT + where + "order by id"))
+                .map(ReactiveReadRepository::toMovie)
+                .all();
+    }
+
+    public Mono<MovieSummaryDto> findMovie(Long id) {
+        return databaseClient.sql(MOVIE_SELECT + "where id = :id")
+                .bind("id", id)
+                .map(ReactiveReadRepository::toMovie)
+                .one();
+    }
+
+    public Flux<ScreeningOutDto> findScreeningsByMovie(Long movieId) {
+        return databaseClient.sql(SCREENING_SELECT + "where s.movie_id = :movieId order by s.id")
+                .bind("movieId", movieId)
+                .map(ReactiveReadRepository::toScreening)
+                .all();
+    }
+
+    // Sin filtros, por id como GET /screenings; con filtros, por hora como la programacion. from incluido, to no
+    public Flux<ScreeningOutDto> findScreenings(ScreeningScheduleFilter filter) {
+        Where where = new Where();
+        if (filter.getFrom() != null) {
+            where.add("s.screening_time >= :from", "from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            where.add("s.screening_time < :to", "to", filter.getTo());
+        }
+        if (filter.getRoom() != null) {
+            where.add("s.theater_room = :room", "room", filter.getRoom());
+        }
+        if (filter.getSubtitled() != null) {
+            where.add("s.subtitled = :subtitled", "subtitled", filter.getSubtitled());
+        }
+        String order = filter.hasAnyFilter() ? "order by s.screening_time, s.id" : "order by s.id";
+        return where.bind(databaseClient.sql(SCREENING_SELECT + where + order))
+                .map(ReactiveReadRepository::toScreening)
+                .all();
+    }
+
+    private static MovieSummaryDto toMovie(Readable row) {
+        MovieSummaryDto movie = new MovieSummaryDto();
+        movie.setId(row.get("id", Long.class));
+        movie.setTitle(row.get("title", String.class));
+        movie.setGenre(row.get("genre", String.class));
+        movie.setDurationMinutes(row.get("duration_minutes", Integer.class));
+        movie.setReleaseDate(row.get("release_date", LocalDate.class));
+        movie.setCurrentlyShowing(row.get("currently_showing", Boolean.class));
+        movie.setVersion(row.get("version", Long.class));
+        movie.setLastModified(row.get("last_modified", LocalDateTime.class));
+        return movie;
+    }
+
+    private static ScreeningOutDto toScreening(Readable row) {
+        return new ScreeningOutDto(row.get("id", Long.class), row.get("screening_time", LocalDateTime.class),
+                row.get("theater_room", String.class), row.get("ticket_price", Double.class),
+                row.get("subtitled", Boolean.class), row.get("movie_id", Long.class), row.get("movie_title", String.class));
+    }
+
+    // Condiciones con sus parametros con nombre, en el orden en que se anaden
+    private static final class Where {
+
+        private final List<String> conditions = new ArrayList<>();
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        void add(String condition, String parameter, Object value) {
+            conditions.add(condition);
+            parameters.put(parameter, value);
+        }
+
+        DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec) {
+            return spec.bindValues(parameters);
+        }
+
+        @Override
+        public String toString() {
+            return conditions.isEmpty() ? "" : "where " + String.join(" and ", conditions) + " ";
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.svalero.cinemas.repository;
+
+import com.svalero.cinemas.domain.ReservedSeat;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReservedSeatRepository extends CrudRepository<ReservedSeat, Long> {
+
+    // Solo las posiciones, para rellenar el mapa de bits de la sesion
+    @Query("select r.seatIndex from ReservedSeat r where r.screeningId = :screeningId")
+    List<Integer> findSeatIndexesByScreeningId(Long screeningId);
+}
@@ -1,11 +1,22 @@
 package com.svalero.cinemas.repository;
 
 import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.RoomSlot;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ScreeningRepository extends CrudRepository<Screening, Long> {
@@ -16,4 +27,108 @@ public interface ScreeningRepository extends CrudRepository<Screening, Long> {
 
     List<Screening> findByScreeningTimeAfter(LocalDateTime dateTime);
 
+    // Consultas que devuelven directamente el DTO de salida con el titulo de la pelicula en un unico join,
+    // sin cargar las entidades (evita una consulta extra por cada pelicula)
+    String OUT_DTO_SELECT = "select new com.svalero.cinemas.domain.dto.ScreeningOutDto("
+            + "s.id, s.screeningTime, s.theaterRoom, s.ticketPrice, s.subtitled, m.id, m.title) "
+            + "from Screening s join s.movie m ";
+
+    @Query(OUT_DTO_SELECT + "order by s.id")
+    List<ScreeningOutDto> findAllWithMovieTitle();
+
+    @Query(OUT_DTO_SELECT + "where s.id = :id")
+    Optional<ScreeningOutDto> findWithMovieTitleById(Long id);
+
+    // Sesiones de varias peliculas de una vez (?expand=screenings en los listados de peliculas)
+    @Query(OUT_DTO_SELECT + "where m.id in :movieIds order by m.id, s.screeningTime")
+    List<ScreeningOutDto> findWithMovieTitleByMovieIds(Collection<Long> movieIds);
+
+    // Paginacion por cursor sobre el id
+    @Query(OUT_DTO_SELECT + "where s.id > :after order by s.id")
+    List<ScreeningOutDto> findPageWithMovieTitle(Long after, Limit limit);
+
+    // Recorrido completo en streaming, hay que consumirlo dentro de una transaccion y cerrarlo al terminar
+    @Query(OUT_DTO_SELECT + "order by s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<ScreeningOutDto> streamAllWithMovieTitle();
+
+    // Huecos de la sala que empiezan en [earliest, end), con la duracion de su pelicula para saber donde acaban
+    String ROOM_SLOT_SELECT = "select new com.svalero.cinemas.domain.dto.RoomSlot("
+            + "s.id, m.id, s.theaterRoom, s.screeningTime, m.durationMinutes) "
+            + "from Screening s join s.movie m ";
+
+    @Query(ROOM_SLOT_SELECT + "where s.theaterRoom = :room and s.screeningTime >= :earliest and s.screeningTime < :end "
+            + "order by s.screeningTime")
+    List<RoomSlot> findRoomSlots(String room, LocalDateTime earliest, LocalDateTime end);
+
+    @Query(ROOM_SLOT_SELECT + "where m.id = :movieId order by s.screeningTime")
+    List<RoomSlot> findRoomSlotsByMovieId(Long movieId);
+
+    // Lo necesario para el ETag de una sesion: su ultimo cambio y la version de la pelicula (de la que sale el titulo)
+    @Query("select s.lastModified as lastModified, m.version as movieVersion, m.lastModified as movieLastModified "
+            + "from Screening s join s.movie m where s.id = :id")
+    Optional<ScreeningVersion> findVersionById(Long id);
+
+    interface ScreeningVersion {
+        LocalDateTime getLastModified();
+
+        Long getMovieVersion();
+
+        LocalDateTime getMovieLastModified();
+    }
+
+    // Lo necesario para el ETag de GET /screenings sin filtros: cuantas sesiones hay y el ultimo cambio de las sesiones
+    // y de sus peliculas (de las que sale el titulo). Borrar una sesion cambia el numero y la fecha de su pelicula
+    @Query("select count(s) as screeningCount, max(s.lastModified) as lastModified, max(m.lastModified) as movieLastModified "
+            + "from Screening s join s.movie m")
+    ScreeningListVersion findListVersion();
+
+    interface ScreeningListVersion {
+        long getScreeningCount();
+
+        LocalDateTime getLastModified();
+
+        LocalDateTime getMovieLastModified();
+    }
+
+    // Estadisticas de GET /stats/...: se agrupan las filas del resumen diario (screening_daily_stats) de los dias
+    // [from, to], nunca las sesiones. El precio medio es el de todas las sesiones, no la media de cada dia
+    String STATS_COLUMNS = "sum(d.screening_count) as screeningCount, sum(d.price_total) / sum(d.screening_count) as averagePrice ";
+
+    // Se agrupa antes de buscar el titulo: cada pelicula se busca por su clave una sola vez. Con una subconsulta y no
+    // con join, para que la base de datos no pueda empezar recorriendo movies (la clave ajena asegura que existe)
+    @Query(nativeQuery = true, value = "select d.movieId, (select m.title from movies m where m.id = d.movieId) as title, "
+            + "d.screeningCount, d.averagePrice "
+            + "from (select d.movie_id as movieId, " + STATS_COLUMNS + "from screening_daily_stats d "
+            + "where d.stat_day between :from and :to group by d.movie_id) d order by d.movieId")
+    List<MoviePriceStats> findPriceStatsByMovie(LocalDate from, LocalDate to);
+
+    @Query(nativeQuery = true, value = "select d.theater_room as theaterRoom, " + STATS_COLUMNS
+            + "from screening_daily_stats d where d.stat_day between :from and :to group by d.theater_room order by d.theater_room")
+    List<RoomPriceStats> findPriceStatsByRoom(LocalDate from, LocalDate to);
+
+    @Query(nativeQuery = true, value = "select d.stat_day as statDay, " + STATS_COLUMNS
+            + "from screening_daily_stats d where d.stat_day between :from and :to group by d.stat_day order by d.stat_day")
+    List<DailyPriceStats> findPriceStatsByDay(LocalDate from, LocalDate to);
+
+    interface PriceStats {
+        long getScreeningCount();
+
+        double getAveragePrice();
+    }
+
+    interface MoviePriceStats extends PriceStats {
+        Long getMovieId();
+
+        String getTitle();
+    }
+
+    interface RoomPriceStats extends PriceStats {
+        String getTheaterRoom();
+    }
+
+    interface DailyPriceStats extends PriceStats {
+        LocalDate getStatDay();
+    }
+
 }
@@ -0,0 +1,9 @@
+package com.svalero.cinemas.repository;
+
+import com.svalero.cinemas.domain.TheaterRoom;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TheaterRoomRepository extends CrudRepository<TheaterRoom, String> {
+}
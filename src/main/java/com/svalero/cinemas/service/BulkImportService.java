@@ -0,0 +1,303 @@
+package com.svalero.cinemas.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.BulkImportResult;
+import com.svalero.cinemas.domain.dto.BulkRowError;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.RoomSlot;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.exception.ScreeningConflictException;
+import com.svalero.cinemas.mapper.MovieMapper;
+import com.svalero.cinemas.mapper.ScreeningMapper;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Importacion masiva de peliculas y sesiones. Las filas se leen en streaming y se guardan por bloques:
+// cada bloque es una transaccion con los inserts agrupados en lotes JDBC. Una fila con errores se anota
+// en el resultado y no impide guardar las demas
+@Observed(name = "cinemas.service")
+@Service
+public class BulkImportService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    private final MovieRepository movieRepository;
+    private final ScreeningRepository screeningRepository;
+    private final MovieMapper movieMapper;
+    private final ScreeningMapper screeningMapper;
+    private final CatalogCacheService catalogCacheService;
+    private final ScreeningScheduleIndex scheduleIndex;
+    private final MovieSearchIndex searchIndex;
+    private final NowShowingBoard nowShowingBoard;
+    private final RoomScheduleGuard roomScheduleGuard;
+    private final ScreeningStatsRollup statsRollup;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BulkImportService(MovieRepository movieRepository, ScreeningRepository screeningRepository, MovieMapper movieMapper,
+                             ScreeningMapper screeningMapper, CatalogCacheService catalogCacheService,
+                             ScreeningScheduleIndex scheduleIndex, MovieSearchIndex searchIndex, NowShowingBoard nowShowingBoard,
+                             RoomScheduleGuard roomScheduleGuard, ScreeningStatsRollup statsRollup, Validator validator,
+                             PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.screeningRepository = screeningRepository;
+        this.movieMapper = movieMapper;
+        this.screeningMapper = screeningMapper;
+        this.catalogCacheService = catalogCacheService;
+        this.scheduleIndex = scheduleIndex;
+        this.searchIndex = searchIndex;
+        this.nowShowingBoard = nowShowingBoard;
+        this.roomScheduleGuard = roomScheduleGuard;
+        this.statsRollup = statsRollup;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BulkImportResult importMovies(MappingIterator<MovieInDto> rows) {
+        BulkImportResult result = new BulkImportResult();
+        readInChunks(rows, result, chunk -> importMovieChunk(chunk, result));
+        return result;
+    }
+
+    public BulkImportResult importScreenings(MappingIterator<ScreeningInDto> rows) {
+        BulkImportResult result = new BulkImportResult();
+        readInChunks(rows, result, chunk -> importScreeningChunk(chunk, result));
+        return result;
+    }
+
+    private void importMovieChunk(List<PendingRow<MovieInDto>> chunk, BulkImportResult result) {
+        List<PendingRow<Movie>> movies = new ArrayList<>();
+        for (PendingRow<MovieInDto> row : chunk) {
+            if (isValid(row, result)) {
+                movies.add(new PendingRow<>(row.number(), movieMapper.toEntity(row.value())));
+            }
+        }
+        // El insert fallido ya les dio id y version: sin quitarlos save() haria merge de una copia
+        List<Movie> saved = save(movies, movie -> {
+            movie.setId(null);
+            movie.setVersion(null);
+        }, movieRepository::saveAll, result);
+        searchIndex.putAll(saved);
+        saved.forEach(nowShowingBoard::putMovie);
+        catalogCacheService.evictMovieQueries();
+    }
+
+    private void importScreeningChunk(List<PendingRow<ScreeningInDto>> chunk, BulkImportResult result) {
+        List<PendingRow<ScreeningInDto>> validRows = chunk.stream()
+                .filter(row -> isValid(row, result))
+                .toList();
+
+        // Todas las peliculas del bloque en una sola consulta IN
+        Set<Long> movieIds = validRows.stream()
+                .map(row -> row.value().getMovieId())
+                .collect(Collectors.toSet());
+        Map<Long, Movie> movies = new HashMap<>();
+        movieRepository.findAllById(movieIds).forEach(movie -> movies.put(movie.getId(), movie));
+
+        List<PendingRow<Screening>> screenings = new ArrayList<>();
+        for (PendingRow<ScreeningInDto> row : validRows) {
+            Movie movie = movies.get(row.value().getMovieId());
+            if (movie == null) {
+                result.addError(row.number(), "Movie with ID " + row.value().getMovieId() + " not found");
+                continue;
+            }
+            Screening screening = screeningMapper.toEntity(row.value());
+            screening.setMovie(movie);
+            screenings.add(new PendingRow<>(row.number(), screening));
+        }
+        saveScreenings(screenings, result);
+        catalogCacheService.evictScreening(null, movieIds.toArray(Long[]::new));
+    }
+
+    // Como save(), pero con las salas del bloque bloqueadas: las filas que se solapan con otra sesion de la sala
+    // (guardada o anterior en el mismo fichero) se anotan como error y no se guardan
+    private void saveScreenings(List<PendingRow<Screening>> rows, BulkImportResult result) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Set<String> rooms = rows.stream().map(row -> row.value().getTheaterRoom()).collect(Collectors.toSet());
+        List<BulkRowError> conflicts = new ArrayList<>();
+        try {
+            int imported = roomScheduleGuard.inRooms(rooms, () -> {
+                List<String> rowConflicts = roomScheduleGuard.findConflicts(rows.stream().map(row -> slotOf(row.value())).toList());
+                List<Screening> accepted = new ArrayList<>(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    if (rowConflicts.get(i) == null) {
+                        accepted.add(rows.get(i).value());
+                    } else {
+                        conflicts.add(new BulkRowError(rows.get(i).number(), rowConflicts.get(i)));
+                    }
+                }
+                screeningRepository.saveAll(accepted);
+                statsRollup.refresh(accepted);
+                entityManager.flush();
+                entityManager.clear();
+                accepted.forEach(this::putInSchedule);
+                nowShowingBoard.refreshMovies(accepted.stream().map(screening -> screening.getMovie().getId()).collect(Collectors.toSet()));
+                return accepted.size();
+            });
+            conflicts.forEach(conflict -> result.addError(conflict.getRow(), conflict.getMessage()));
+            result.setImported(result.getImported() + imported);
+        } catch (DataAccessException | PersistenceException e) {
+            logger.warn("Bulk chunk rejected, retrying row by row: {}", causeOf(e));
+            for (PendingRow<Screening> row : rows) {
+                Screening screening = row.value();
+                screening.setId(null);
+                try {
+                    roomScheduleGuard.inRooms(List.of(screening.getTheaterRoom()), () -> {
+                        roomScheduleGuard.checkFree(screening.getTheaterRoom(), screening.getScreeningTime(),
+                                screening.getMovie().getDurationMinutes(), null);
+                        Screening saved = screeningRepository.save(screening);
+                        statsRollup.refresh(List.of(saved));
+                        entityManager.flush();
+                        entityManager.clear();
+                        putInSchedule(saved);
+                        nowShowingBoard.refreshMovies(List.of(saved.getMovie().getId()));
+                        return saved;
+                    });
+                    result.setImported(result.getImported() + 1);
+                } catch (ScreeningConflictException rowConflict) {
+                    result.addError(row.number(), rowConflict.getMessage());
+                } catch (DataAccessException | PersistenceException rowException) {
+                    result.addError(row.number(), causeOf(rowException));
+                }
+            }
+        }
+    }
+
+    private void putInSchedule(Screening screening) {
+        scheduleIndex.put(screeningMapper.toOutDto(screening), screening.getMovie().getDurationMinutes());
+    }
+
+    private static RoomSlot slotOf(Screening screening) {
+        return new RoomSlot(null, screening.getMovie().getId(), screening.getTheaterRoom(), screening.getScreeningTime(),
+                screening.getMovie().getDurationMinutes());
+    }
+
+    // Guarda el bloque en una transaccion; si la base de datos rechaza el lote se repite fila a fila
+    // para saber cual es la que falla y no perder las demas. reset deja cada entidad como antes del intento fallido.
+    // Devuelve las entidades que devuelve saveAll, que son las que quedan guardadas
+    private <E> List<E> save(List<PendingRow<E>> rows, Consumer<E> reset,
+                             Function<List<E>, Iterable<E>> saveAll, BulkImportResult result) {
+        List<E> saved = new ArrayList<>(rows.size());
+        if (rows.isEmpty()) {
+            return saved;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                saveAll.apply(rows.stream().map(PendingRow::value).toList()).forEach(saved::add);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            result.setImported(result.getImported() + rows.size());
+        } catch (DataAccessException | PersistenceException e) {
+            logger.warn("Bulk chunk rejected, retrying row by row: {}", causeOf(e));
+            saved.clear();
+            for (PendingRow<E> row : rows) {
+                reset.accept(row.value());
+                try {
+                    saved.addAll(transactionTemplate.execute(status -> {
+                        List<E> savedRow = new ArrayList<>(1);
+                        saveAll.apply(List.of(row.value())).forEach(savedRow::add);
+                        entityManager.flush();
+                        entityManager.clear();
+                        return savedRow;
+                    }));
+                    result.setImported(result.getImported() + 1);
+                } catch (DataAccessException | PersistenceException rowException) {
+                    result.addError(row.number(), causeOf(rowException));
+                }
+            }
+        }
+        return saved;
+    }
+
+    // Los errores del flush llegan de Hibernate sin traducir a DataAccessException
+    private static String causeOf(RuntimeException e) {
+        return NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+    }
+
+    private <T> boolean isValid(PendingRow<T> row, BulkImportResult result) {
+        Set<ConstraintViolation<T>> violations = validator.validate(row.value());
+        if (violations.isEmpty()) {
+            return true;
+        }
+        String message = violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+        result.addError(row.number(), message);
+        return false;
+    }
+
+    // Lee las filas una a una y entrega bloques de CHUNK_SIZE, sin tener nunca el fichero completo en memoria.
+    // Un valor con tipos incorrectos se anota y se sigue leyendo; si el formato esta roto no se puede continuar
+    private <T> void readInChunks(MappingIterator<T> rows, BulkImportResult result,
+                                  Consumer<List<PendingRow<T>>> chunkHandler) {
+        List<PendingRow<T>> chunk = new ArrayList<>(CHUNK_SIZE);
+        long rowNumber = 0;
+        while (true) {
+            try {
+                if (!rows.hasNextValue()) {
+                    break;
+                }
+                rowNumber++;
+                chunk.add(new PendingRow<>(rowNumber, rows.nextValue()));
+            } catch (JsonMappingException e) {
+                result.addError(rowNumber, e.getOriginalMessage());
+            } catch (JsonProcessingException e) {
+                result.addError(Math.max(rowNumber, 1), "Malformed content, import stopped: " + e.getOriginalMessage());
+                break;
+            } catch (IOException e) {
+                result.addError(Math.max(rowNumber, 1), "Could not read content, import stopped: " + e.getMessage());
+                break;
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                chunkHandler.accept(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkHandler.accept(chunk);
+        }
+        result.setReceived(rowNumber);
+        // Los errores de lectura se anotan antes que los de validacion del bloque
+        result.getErrors().sort(Comparator.comparingLong(BulkRowError::getRow));
+    }
+
+    private record PendingRow<T>(long number, T value) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.CacheRegionStats;
+import com.svalero.cinemas.repository.CacheRegions;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Invalida la cache de segundo nivel despues de cada escritura y expone sus estadisticas
+@Service
+public class CatalogCacheService {
+
+    private static final List<String> MOVIE_QUERY_REGIONS = List.of(
+            CacheRegions.MOVIES_BY_TITLE,
+            CacheRegions.MOVIES_BY_GENRE,
+            CacheRegions.MOVIES_BY_CURRENTLY_SHOWING);
+
+    private static final String MOVIE_SCREENINGS_ROLE = Movie.class.getName() + ".screenings";
+
+    private final Cache cache;
+    private final Statistics statistics;
+
+    public CatalogCacheService(EntityManagerFactory entityManagerFactory) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.cache = sessionFactory.getCache();
+        this.statistics = sessionFactory.getStatistics();
+    }
+
+    // Una pelicula cambia: su entrada, su lista de sesiones y las consultas cacheadas sobre peliculas
+    public void evictMovie(Long movieId) {
+        evictNowAndAfterCommit(() -> {
+            cache.evictEntityData(Movie.class, movieId);
+            cache.evictCollectionData(MOVIE_SCREENINGS_ROLE, movieId);
+            evictMovieQueries();
+        });
+    }
+
+    // Solo las consultas cacheadas sobre peliculas, para altas nuevas que aun no estan en la cache
+    public void evictMovieQueries() {
+        MOVIE_QUERY_REGIONS.forEach(cache::evictQueryRegion);
+    }
+
+    // Una sesion cambia: su entrada y la lista de sesiones de las peliculas afectadas.
+    // La coleccion Movie.screenings es el lado inverso de la relacion y Hibernate no la invalida solo
+    public void evictScreening(Long screeningId, Long... movieIds) {
+        evictNowAndAfterCommit(() -> {
+            if (screeningId != null) {
+                cache.evictEntityData(Screening.class, screeningId);
+            }
+            Arrays.stream(movieIds)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .forEach(movieId -> cache.evictCollectionData(MOVIE_SCREENINGS_ROLE, movieId));
+        });
+    }
+
+    // Dentro de una transaccion se vuelve a invalidar al confirmar: entre medias otra peticion puede haber
+    // vuelto a cargar en la cache los datos anteriores
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    public List<CacheRegionStats> getStatistics() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> {
+                    CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+                    long hits = regionStatistics.getHitCount();
+                    long misses = regionStatistics.getMissCount();
+                    double hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+                    return new CacheRegionStats(region, hits, misses, regionStatistics.getPutCount(), hitRatio);
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,369 @@
+package com.svalero.cinemas.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.domain.dto.ChangeEventDto;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+
+// Cambios confirmados de peliculas y sesiones (GET /changes), para que kioscos y socios se suscriban una vez en vez de
+// consultar los listados cada pocos segundos. Los eventos llegan de ChangeFeedListener al confirmar cada transaccion
+// y reciben un offset consecutivo. Los ultimos buffer-size se guardan en memoria en un buffer circular; con log-dir
+// tambien se anaden, uno por linea, a ficheros de segment-size como mucho, que se vuelven a leer al arrancar. Asi un
+// cliente puede retomar desde su ultimo offset aunque se haya quedado fuera del buffer o la aplicacion se haya
+// reiniciado. Cada fichero se llama como su primer offset y se guarda en memoria la posicion de uno de cada
+// READ_BATCH eventos, para leer desde un offset sin recorrer el fichero; los mas antiguos se borran cuando entre
+// todos pasan de max-size. Cada suscriptor lee a su ritmo desde su propio hilo virtual: un cliente lento no retrasa
+// las escrituras ni a los demas clientes
+@Component
+public class ChangeFeed implements DisposableBean {
+
+    private static final int READ_BATCH = 100;
+    private static final Pattern SEGMENT = Pattern.compile("(\\d+)\\.ndjson");
+
+    private final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final ObjectMapper objectMapper;
+    private final Duration heartbeat;
+    private final ChangeEventDto[] buffer;
+    private final Path logDir;
+    private final long segmentSize;
+    private final long maxLogSize;
+    // Ficheros del log por su primer offset. Se leen sin el lock; solo append y openLog los cambian
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final ExecutorService subscribers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("change-feed-", 0).factory());
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Solo se tocan con el lock
+    private long nextOffset = 1;
+    private long firstLoggedOffset = 1;
+    private OutputStream log;
+    // Bytes del ultimo fichero, donde se anade
+    private long logBytes;
+    private boolean closed;
+
+    public ChangeFeed(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                      @Value("${cinemas.changes.buffer-size:10000}") int bufferSize,
+                      @Value("${cinemas.changes.log-dir:}") String logDir,
+                      @Value("${cinemas.changes.segment-size:16MB}") DataSize segmentSize,
+                      @Value("${cinemas.changes.max-size:256MB}") DataSize maxLogSize,
+                      @Value("${cinemas.changes.heartbeat:15s}") Duration heartbeat) {
+        this.objectMapper = objectMapper;
+        this.heartbeat = heartbeat;
+        this.buffer = new ChangeEventDto[bufferSize];
+        this.logDir = hasText(logDir) ? Path.of(logDir.replaceFirst("^~", System.getProperty("user.home"))) : null;
+        this.segmentSize = segmentSize.toBytes();
+        this.maxLogSize = maxLogSize.toBytes();
+        if (this.logDir != null) {
+            openLog();
+        }
+        Gauge.builder("cinemas.changes.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Clients subscribed to GET /changes")
+                .register(meterRegistry);
+    }
+
+    public void movieChanged(String action, Long id, MovieSummaryDto movie) {
+        AfterCommit.run(() -> append(new ChangeEventDto(0, ChangeEventDto.MOVIE, action, id, null, movie, null)));
+    }
+
+    public void screeningChanged(String action, Long id, ScreeningOutDto screening) {
+        AfterCommit.run(() -> append(new ChangeEventDto(0, ChangeEventDto.SCREENING, action, id, null, null, screening)));
+    }
+
+    public long lastOffset() {
+        lock.lock();
+        try {
+            return nextOffset - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Envia a subscriber los eventos posteriores a after (de la entidad indicada, o todos con null) y despues los que
+    // vayan llegando, hasta que el envio falle o se pare la aplicacion. Si alguno ya no esta disponible, o after es de
+    // un fichero anterior, primero llama a reset con el offset desde el que sigue
+    public void subscribe(long after, String entity, Subscriber subscriber) {
+        subscriberCount.incrementAndGet();
+        subscribers.execute(() -> {
+            try {
+                long position = after;
+                while (true) {
+                    Read read = read(position);
+                    if (read == null) {
+                        return;
+                    }
+                    if (read.missedUntil() != null) {
+                        position = read.missedUntil();
+                        subscriber.reset(position);
+                    }
+                    if (read.events().isEmpty()) {
+                        subscriber.heartbeat();
+                    }
+                    for (ChangeEventDto event : read.events()) {
+                        if (entity == null || entity.equals(event.getEntity())) {
+                            subscriber.send(event);
+                        }
+                        position = event.getOffset();
+                    }
+                }
+            } catch (Exception e) {
+                // El cliente se ha desconectado o ha caducado la respuesta: retomara con Last-Event-ID
+                logger.debug("Change feed subscriber stopped: {}", e.getMessage());
+            } finally {
+                subscriberCount.decrementAndGet();
+                subscriber.close();
+            }
+        });
+    }
+
+    // Hasta READ_BATCH eventos posteriores a after; si no hay ninguno espera como mucho heartbeat. null si se ha parado
+    private Read read(long after) throws InterruptedException, IOException {
+        long fromLog;
+        lock.lock();
+        try {
+            Long missedUntil = null;
+            if (after >= nextOffset) {
+                missedUntil = nextOffset - 1;
+                after = missedUntil;
+            }
+            long nanos = heartbeat.toNanos();
+            while (missedUntil == null && after == nextOffset - 1 && !closed && nanos > 0) {
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (closed) {
+                return null;
+            }
+            long oldestBuffered = Math.max(1, nextOffset - buffer.length);
+            if (after + 1 >= oldestBuffered) {
+                List<ChangeEventDto> events = new ArrayList<>();
+                for (long offset = after + 1; offset < nextOffset && events.size() < READ_BATCH; offset++) {
+                    events.add(buffer[(int) (offset % buffer.length)]);
+                }
+                return new Read(events, missedUntil);
+            }
+            if (log == null || after + 1 < firstLoggedOffset) {
+                return new Read(List.of(), log == null ? oldestBuffered - 1 : firstLoggedOffset - 1);
+            }
+            fromLog = oldestBuffered;
+        } finally {
+            lock.unlock();
+        }
+        // Fuera del buffer: del fichero, sin el lock. append escribe cada linea entera antes de soltarlo
+        return new Read(readLog(after, fromLog), null);
+    }
+
+    // Empieza en el fichero que contiene after + 1, desde la posicion guardada mas cercana, y no pasa de ese fichero
+    private List<ChangeEventDto> readLog(long after, long before) throws IOException {
+        List<ChangeEventDto> events = new ArrayList<>();
+        Map.Entry<Long, Segment> segment = segments.floorEntry(after + 1);
+        if (segment == null) {
+            return events;
+        }
+        Map.Entry<Long, Long> position = segment.getValue().positions().floorEntry(after + 1);
+        try (FileChannel channel = FileChannel.open(segment.getValue().file(), StandardOpenOption.READ)) {
+            channel.position(position == null ? 0 : position.getValue());
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            String line;
+            while (events.size() < READ_BATCH && (line = reader.readLine()) != null) {
+                ChangeEventDto event = objectMapper.readValue(line, ChangeEventDto.class);
+                if (event.getOffset() >= before) {
+                    break;
+                }
+                if (event.getOffset() > after) {
+                    events.add(event);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Lo acaba de borrar append por tamano: la siguiente lectura ya lo ve como perdido
+        }
+        return events;
+    }
+
+    private void append(ChangeEventDto event) {
+        lock.lock();
+        try {
+            event.setOffset(nextOffset);
+            event.setCommittedAt(LocalDateTime.now());
+            buffer[(int) (nextOffset % buffer.length)] = event;
+            nextOffset++;
+            if (log != null) {
+                try {
+                    writeLog(event);
+                } catch (IOException e) {
+                    // El cambio ya esta confirmado: sigue en memoria aunque no se pueda releer tras reiniciar
+                    logger.warn("Could not append change {} to {}: {}", event.getOffset(), logDir, e.getMessage());
+                }
+            }
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Con el lock. Si el fichero actual se pasaria de segment-size empieza otro en este evento
+    private void writeLog(ChangeEventDto event) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (logBytes > 0 && logBytes + line.length > segmentSize) {
+            log.close();
+            log = null;
+            startSegment(event.getOffset());
+            deleteOldSegments();
+        }
+        Map.Entry<Long, Segment> segment = segments.lastEntry();
+        if ((event.getOffset() - segment.getKey()) % READ_BATCH == 0) {
+            segment.getValue().positions().put(event.getOffset(), logBytes);
+        }
+        log.write(line);
+        log.flush();
+        logBytes += line.length;
+    }
+
+    private void startSegment(long firstOffset) throws IOException {
+        Path file = logDir.resolve(String.format("%020d.ndjson", firstOffset));
+        segments.put(firstOffset, new Segment(file, new ConcurrentSkipListMap<>()));
+        log = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        logBytes = Files.size(file);
+    }
+
+    // Borra los ficheros mas antiguos mientras entre todos pasen de max-size; el actual nunca
+    private void deleteOldSegments() throws IOException {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += Files.size(segment.file());
+        }
+        while (total > maxLogSize && segments.size() > 1) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            total -= Files.size(oldest.file());
+            Files.delete(oldest.file());
+        }
+        firstLoggedOffset = segments.firstKey();
+    }
+
+    // Recupera el buffer, las posiciones y el siguiente offset de los ficheros y deja el ultimo abierto para seguir
+    // anadiendo. Una ultima linea incompleta (la aplicacion se paro a mitad de escribirla) se descarta
+    private void openLog() {
+        try {
+            Files.createDirectories(logDir);
+            List<Path> files;
+            try (Stream<Path> listed = Files.list(logDir)) {
+                files = listed.filter(file -> SEGMENT.matcher(file.getFileName().toString()).matches())
+                        .sorted()
+                        .toList();
+            }
+            for (Path file : files) {
+                long firstOffset = Long.parseLong(file.getFileName().toString().replace(".ndjson", ""));
+                NavigableMap<Long, Long> positions = new ConcurrentSkipListMap<>();
+                long valid = 0;
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        ChangeEventDto event;
+                        try {
+                            event = objectMapper.readValue(line, ChangeEventDto.class);
+                        } catch (IOException e) {
+                            logger.warn("Ignoring the end of {} from a truncated line", file);
+                            break;
+                        }
+                        if ((event.getOffset() - firstOffset) % READ_BATCH == 0) {
+                            positions.put(event.getOffset(), valid);
+                        }
+                        buffer[(int) (event.getOffset() % buffer.length)] = event;
+                        nextOffset = event.getOffset() + 1;
+                        valid += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    }
+                }
+                try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+                segments.put(firstOffset, new Segment(file, positions));
+            }
+            if (segments.isEmpty()) {
+                startSegment(nextOffset);
+            } else {
+                Map.Entry<Long, Segment> last = segments.lastEntry();
+                log = new BufferedOutputStream(Files.newOutputStream(last.getValue().file(), StandardOpenOption.APPEND));
+                logBytes = Files.size(last.getValue().file());
+            }
+            deleteOldSegments();
+            logger.info("Change feed resumed at offset {} from {} files in {}", nextOffset - 1, segments.size(), logDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open change log " + logDir, e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        subscribers.shutdown();
+        subscribers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // Destino de los eventos de un suscriptor (la respuesta SSE). Una excepcion termina la suscripcion
+    public interface Subscriber {
+
+        void send(ChangeEventDto event) throws IOException;
+
+        // Se han perdido eventos: el cliente debe recargar los listados; el feed sigue a partir de offset
+        void reset(long offset) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        void close();
+    }
+
+    // missedUntil: hay eventos que ya no estan disponibles y se sigue despues de ese offset
+    private record Read(List<ChangeEventDto> events, Long missedUntil) {
+    }
+
+    // positions: byte donde empieza uno de cada READ_BATCH eventos del fichero
+    private record Segment(Path file, NavigableMap<Long, Long> positions) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.ChangeEventDto;
+import com.svalero.cinemas.mapper.MovieMapper;
+import com.svalero.cinemas.mapper.ScreeningMapper;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+// Listener JPA de Movie y Screening: cada INSERT, UPDATE o DELETE de una entidad pasa a ChangeFeed, que lo publica si
+// la transaccion se confirma. Lo crea Hibernate a traves de Spring, antes de que existan los servicios: por eso los
+// recibe con ObjectProvider. Los UPDATE masivos (PATCH con targeted-patch) no pasan por aqui y avisan ellos mismos
+@SuppressWarnings("unused")
+public class ChangeFeedListener {
+
+    private final ObjectProvider<ChangeFeed> changeFeed;
+    private final ObjectProvider<MovieMapper> movieMapper;
+    private final ObjectProvider<ScreeningMapper> screeningMapper;
+
+    public ChangeFeedListener(ObjectProvider<ChangeFeed> changeFeed, ObjectProvider<MovieMapper> movieMapper,
+                              ObjectProvider<ScreeningMapper> screeningMapper) {
+        this.changeFeed = changeFeed;
+        this.movieMapper = movieMapper;
+        this.screeningMapper = screeningMapper;
+    }
+
+    @PostPersist
+    void created(Object entity) {
+        changed(ChangeEventDto.CREATED, entity);
+    }
+
+    @PostUpdate
+    void updated(Object entity) {
+        changed(ChangeEventDto.UPDATED, entity);
+    }
+
+    @PostRemove
+    void deleted(Object entity) {
+        changed(ChangeEventDto.DELETED, entity);
+    }
+
+    private void changed(String action, Object entity) {
+        boolean deleted = action.equals(ChangeEventDto.DELETED);
+        if (entity instanceof Movie movie) {
+            changeFeed.getObject().movieChanged(action, movie.getId(),
+                    deleted ? null : movieMapper.getObject().toSummary(movie));
+        } else if (entity instanceof Screening screening) {
+            changeFeed.getObject().screeningChanged(action, screening.getId(),
+                    deleted ? null : screeningMapper.getObject().toOutDto(screening));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.svalero.cinemas.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.svalero.cinemas.exception.IdempotencyKeyInUseException;
+import com.svalero.cinemas.exception.IdempotencyKeyReusedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Respuestas de las altas que llegan con Idempotency-Key, para que un reintento del cliente devuelva la misma
+// respuesta en vez de crear otra fila. En memoria caben como mucho max-keys y cada una dura ttl. Con persistent
+// tambien se guardan en idempotency_keys: sobreviven a un reinicio y las ven los demas nodos. Que una peticion con
+// la clave siga en curso solo se sabe en el nodo que la atiende
+@Component
+public class IdempotencyStore {
+
+    private final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final Cache<String, Entry> entries;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final boolean persistent;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate,
+                            @Value("${cinemas.idempotency.max-keys:10000}") long maxKeys,
+                            @Value("${cinemas.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${cinemas.idempotency.persistent:false}") boolean persistent) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.persistent = persistent;
+    }
+
+    // Reserva la clave para esta peticion. Vacio si hay que ejecutarla (y despues llamar a complete o release); la
+    // respuesta guardada si ya se ejecuto. fingerprint resume el cuerpo: la misma clave con otro cuerpo es un error
+    public Optional<StoredResponse> begin(String scope, String key, String fingerprint) {
+        String id = scope + ' ' + key;
+        Entry existing = entries.asMap().putIfAbsent(id, new Entry(fingerprint, null));
+        if (existing == null && persistent) {
+            try {
+                existing = findStored(scope, key).orElse(null);
+            } catch (RuntimeException e) {
+                // Sin soltarla, la clave seguiria "en curso" hasta que caduque
+                entries.invalidate(id);
+                throw e;
+            }
+            if (existing != null) {
+                entries.put(id, existing);
+            }
+        }
+        if (existing == null) {
+            return Optional.empty();
+        }
+        if (!existing.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key " + key + " was already used with a different request");
+        }
+        if (existing.response() == null) {
+            throw new IdempotencyKeyInUseException("A request with Idempotency-Key " + key + " is still in progress");
+        }
+        return Optional.of(existing.response());
+    }
+
+    public void complete(String scope, String key, String fingerprint, StoredResponse response) {
+        entries.put(scope + ' ' + key, new Entry(fingerprint, response));
+        if (persistent) {
+            try {
+                jdbcTemplate.update("insert into idempotency_keys (scope, idempotency_key, fingerprint, status, body, created_at) "
+                                + "values (?, ?, ?, ?, ?, ?)",
+                        scope, key, fingerprint, response.status(), response.body(), LocalDateTime.now());
+            } catch (DuplicateKeyException e) {
+                // Otro nodo ya la ha guardado con la misma clave: la primera respuesta es la que vale
+            } catch (DataAccessException e) {
+                // El alta ya esta hecha; sin la fila solo se pierde la repeticion en otros nodos o tras reiniciar
+                logger.warn("Could not store Idempotency-Key {} for {}: {}", key, scope, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    // La peticion ha fallado: un reintento con la misma clave se vuelve a ejecutar
+    public void release(String scope, String key) {
+        entries.invalidate(scope + ' ' + key);
+    }
+
+    @Scheduled(fixedDelayString = "${cinemas.idempotency.purge-interval:10m}")
+    public void purgeExpired() {
+        if (persistent) {
+            jdbcTemplate.update("delete from idempotency_keys where created_at < ?", LocalDateTime.now().minus(ttl));
+        }
+    }
+
+    private Optional<Entry> findStored(String scope, String key) {
+        List<Entry> stored = jdbcTemplate.query("select fingerprint, status, body from idempotency_keys "
+                        + "where scope = ? and idempotency_key = ? and created_at >= ?",
+                (row, rowNumber) -> new Entry(row.getString("fingerprint"),
+                        new StoredResponse(row.getInt("status"), row.getString("body"))),
+                scope, key, LocalDateTime.now().minus(ttl));
+        return stored.stream().findFirst();
+    }
+
+    // Estado y cuerpo (JSON) de la respuesta original
+    public record StoredResponse(int status, String body) {
+    }
+
+    // Sin respuesta mientras la peticion original esta en curso
+    private record Entry(String fingerprint, StoredResponse response) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.svalero.cinemas.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.exception.InvalidMoviePatchException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Campos de Movie que se pueden modificar con PATCH. La tabla se construye una sola vez al arrancar:
+// por cada propiedad editable de MovieInDto (salvo id) guarda el setter de Movie como MethodHandle y el tipo
+// al que hay que convertir el valor, asi en cada peticion no hay busqueda de campos ni reflexion
+@Component
+public class MoviePatchFields {
+
+    private final Map<String, PatchField> fields;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public MoviePatchFields(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.fields = buildFields(objectMapper, validator);
+    }
+
+    public Set<String> names() {
+        return fields.keySet();
+    }
+
+    // Convierte y valida cada valor con las mismas reglas que MovieInDto. Una clave desconocida, un valor que no
+    // se puede convertir o que no cumple las validaciones hace fallar el PATCH completo sin tocar nada
+    public List<PatchValue> resolve(Map<String, Object> updates) {
+        if (updates.isEmpty()) {
+            throw new InvalidMoviePatchException("Nothing to update");
+        }
+        List<PatchValue> values = new ArrayList<>(updates.size());
+        updates.forEach((name, rawValue) -> {
+            PatchField field = fields.get(name);
+            if (field == null) {
+                throw new InvalidMoviePatchException("Cannot update movie field: " + name + ", allowed: " + fields.keySet());
+            }
+            Object value = field.convert(objectMapper, rawValue);
+            Set<ConstraintViolation<MovieInDto>> violations = field.constrained()
+                    ? validator.validateValue(MovieInDto.class, name, value)
+                    : Set.of();
+            if (!violations.isEmpty()) {
+                throw new InvalidMoviePatchException(violations.stream()
+                        .map(violation -> name + ": " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+            }
+            values.add(new PatchValue(field, value));
+        });
+        return values;
+    }
+
+    private static Map<String, PatchField> buildFields(ObjectMapper objectMapper, Validator validator) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodType setterType = MethodType.methodType(void.class, Movie.class, Object.class);
+        Map<String, PatchField> fields = new LinkedHashMap<>();
+        for (PropertyDescriptor dtoProperty : BeanUtils.getPropertyDescriptors(MovieInDto.class)) {
+            String name = dtoProperty.getName();
+            PropertyDescriptor movieProperty = BeanUtils.getPropertyDescriptor(Movie.class, name);
+            if (name.equals("id") || dtoProperty.getWriteMethod() == null
+                    || movieProperty == null || movieProperty.getWriteMethod() == null) {
+                continue;
+            }
+            Class<?> type = movieProperty.getPropertyType();
+            try {
+                MethodHandle setter = lookup.unreflect(movieProperty.getWriteMethod()).asType(setterType);
+                boolean constrained = validator.getConstraintsForClass(MovieInDto.class).getConstraintsForProperty(name) != null;
+                fields.put(name, new PatchField(name, type, objectMapper.constructType(ClassUtils.resolvePrimitiveIfNecessary(type)),
+                        setter, constrained));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Movie setter not accessible: " + name, e);
+            }
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    public record PatchField(String name, Class<?> type, JavaType javaType, MethodHandle setter, boolean constrained) {
+
+        // Los valores que ya llegan con el tipo correcto se usan tal cual; el resto (fechas como texto, numeros
+        // como texto...) se convierten con Jackson, con las mismas reglas que el cuerpo de un POST
+        Object convert(ObjectMapper objectMapper, Object value) {
+            if (value == null) {
+                if (type.isPrimitive()) {
+                    throw new InvalidMoviePatchException(name + ": must not be null");
+                }
+                return null;
+            }
+            if (javaType.getRawClass().isInstance(value)) {
+                return value;
+            }
+            try {
+                return objectMapper.convertValue(value, javaType);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidMoviePatchException(name + ": cannot convert " + value + " to " + type.getSimpleName());
+            }
+        }
+    }
+
+    public record PatchValue(PatchField field, Object value) {
+
+        public void applyTo(Movie movie) {
+            try {
+                field.setter().invokeExact(movie, value);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not set movie field " + field.name(), e);
+            }
+        }
+    }
+}
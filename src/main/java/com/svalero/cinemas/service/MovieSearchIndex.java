@@ -0,0 +1,305 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieSearchHitDto;
+import com.svalero.cinemas.exception.InvalidMovieQueryException;
+import com.svalero.cinemas.repository.MovieRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Busqueda de peliculas por titulo y genero en un indice invertido de Lucene (en memoria, o en cinemas.search.index-dir).
+// Cada palabra buscada tiene que aparecer en el titulo o el genero, exacta, como prefijo o con una o dos letras
+// cambiadas; los resultados salen por relevancia. El indice guarda lo que devuelve la busqueda, asi que buscar no
+// consulta la base de datos. Se reconstruye entero al arrancar y los servicios lo mantienen al dia en cada alta,
+// modificacion o baja, como ScreeningScheduleIndex
+@Component
+public class MovieSearchIndex implements SmartInitializingSingleton, DisposableBean {
+
+    public static final int MAX_RESULTS = 50;
+    // Palabras de la busqueda que se tienen en cuenta; cada una puede convertirse en una consulta difusa
+    private static final int MAX_TERMS = 8;
+    // Con menos letras los prefijos y las erratas casan con demasiadas palabras
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MIN_TWO_EDITS_LENGTH = 8;
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String GENRE = "genre";
+    private static final String RELEASE_DATE = "releaseDate";
+    private static final String CURRENTLY_SHOWING = "currentlyShowing";
+    private static final String TITLE_SORT = "titleSort";
+    private static final Sort BY_RELEVANCE = new Sort(SortField.FIELD_SCORE, new SortField(TITLE_SORT, SortField.Type.STRING));
+
+    // Palabras en minusculas y sin tildes: "Pelicula" encuentra "Película"
+    private static final Analyzer ANALYZER = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            return new TokenStreamComponents(tokenizer, new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer)));
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(MovieSearchIndex.class);
+
+    private final MovieRepository movieRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public MovieSearchIndex(MovieRepository movieRepository, PlatformTransactionManager transactionManager,
+                            @Value("${cinemas.search.index-dir:}") String indexDir) throws IOException {
+        this.movieRepository = movieRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        Directory directory = indexDir.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(indexDir));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(ANALYZER).setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Movie> movies = movieRepository.streamAll()) {
+                // Cada pelicula se suelta del contexto de persistencia en cuanto se indexa
+                movies.forEach(movie -> {
+                    write(() -> writer.addDocument(toDocument(movie)));
+                    entityManager.detach(movie);
+                });
+            }
+        });
+        write(writer::commit);
+        refresh();
+        logger.info("Movie search index loaded: {} movies ({} ms)", writer.getDocStats().numDocs,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Peliculas que contienen todas las palabras de la busqueda, de la mas a la menos relevante
+    public List<MovieSearchHitDto> search(String text, int limit) {
+        List<String> terms = terms(text);
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(TITLE, term)), 4), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(GENRE, term)), BooleanClause.Occur.SHOULD);
+            if (term.length() >= MIN_PREFIX_LENGTH) {
+                anyField.add(new BoostQuery(new PrefixQuery(new Term(TITLE, term)), 2), BooleanClause.Occur.SHOULD);
+            }
+            if (term.length() >= MIN_FUZZY_LENGTH) {
+                anyField.add(fuzzy(term), BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return find(query.build(), limit).stream()
+                .map(hit -> toHit(hit.document(), hit.score()))
+                .toList();
+    }
+
+    // Autocompletado: titulos cuyas palabras empiezan como las escritas; la ultima puede estar a medias
+    public List<String> suggest(String text, int limit) {
+        List<String> terms = terms(text);
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size() - 1; i++) {
+            String term = terms.get(i);
+            query.add(term.length() >= MIN_FUZZY_LENGTH
+                    ? new BooleanQuery.Builder()
+                        .add(new BoostQuery(new TermQuery(new Term(TITLE, term)), 2), BooleanClause.Occur.SHOULD)
+                        .add(fuzzy(term), BooleanClause.Occur.SHOULD)
+                        .build()
+                    : new TermQuery(new Term(TITLE, term)), BooleanClause.Occur.MUST);
+        }
+        query.add(new PrefixQuery(new Term(TITLE, terms.get(terms.size() - 1))), BooleanClause.Occur.MUST);
+        // Peliculas con el mismo titulo salen una sola vez
+        Set<String> titles = new LinkedHashSet<>();
+        find(query.build(), limit).forEach(hit -> titles.add(hit.document().get(TITLE)));
+        return List.copyOf(titles);
+    }
+
+    public void put(Movie movie) {
+        putAll(List.of(movie));
+    }
+
+    // Los documentos se preparan ya, con los valores actuales de las entidades, y se escriben al confirmar
+    public void putAll(Collection<Movie> movies) {
+        List<Document> documents = movies.stream().map(MovieSearchIndex::toDocument).toList();
+        AfterCommit.run(() -> {
+            documents.forEach(document -> write(() -> writer.updateDocument(new Term(ID, document.get(ID)), document)));
+            refresh();
+        });
+    }
+
+    public void remove(Long movieId) {
+        AfterCommit.run(() -> {
+            write(() -> writer.deleteDocuments(new Term(ID, String.valueOf(movieId))));
+            refresh();
+        });
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    private List<Hit> find(Query query, int limit) {
+        IndexSearcher searcher = acquire();
+        try {
+            TopDocs top = searcher.search(query, Math.max(1, Math.min(limit, MAX_RESULTS)), BY_RELEVANCE, true);
+            StoredFields storedFields = searcher.storedFields();
+            List<Hit> hits = new ArrayList<>(top.scoreDocs.length);
+            for (ScoreDoc scoreDoc : top.scoreDocs) {
+                hits.add(new Hit(storedFields.document(scoreDoc.doc), scoreDoc.score));
+            }
+            return hits;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    // Una o dos letras de diferencia segun lo larga que sea la palabra; la primera letra tiene que coincidir
+    private static Query fuzzy(String term) {
+        return new FuzzyQuery(new Term(TITLE, term), term.length() >= MIN_TWO_EDITS_LENGTH ? 2 : 1, 1);
+    }
+
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text != null) {
+            try (TokenStream stream = ANALYZER.tokenStream(TITLE, text)) {
+                CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+                stream.reset();
+                while (stream.incrementToken() && terms.size() < MAX_TERMS) {
+                    terms.add(term.toString());
+                }
+                stream.end();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (terms.isEmpty()) {
+            throw new InvalidMovieQueryException("Search text must contain at least one word");
+        }
+        return terms;
+    }
+
+    private static Document toDocument(Movie movie) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(movie.getId()), Field.Store.YES));
+        document.add(new TextField(TITLE, movie.getTitle(), Field.Store.YES));
+        document.add(new TextField(GENRE, movie.getGenre(), Field.Store.YES));
+        document.add(new SortedDocValuesField(TITLE_SORT, new BytesRef(movie.getTitle().toLowerCase(Locale.ROOT))));
+        if (movie.getReleaseDate() != null) {
+            document.add(new StoredField(RELEASE_DATE, movie.getReleaseDate().toEpochDay()));
+        }
+        document.add(new StoredField(CURRENTLY_SHOWING, movie.isCurrentlyShowing() ? 1 : 0));
+        return document;
+    }
+
+    private static MovieSearchHitDto toHit(Document document, float score) {
+        Number releaseDate = document.getField(RELEASE_DATE) == null ? null : document.getField(RELEASE_DATE).numericValue();
+        return new MovieSearchHitDto(Long.valueOf(document.get(ID)), document.get(TITLE), document.get(GENRE),
+                releaseDate == null ? null : LocalDate.ofEpochDay(releaseDate.longValue()),
+                document.getField(CURRENTLY_SHOWING).numericValue().intValue() == 1, score);
+    }
+
+    private IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Las busquedas siguientes ya ven los cambios escritos
+    private void refresh() {
+        write(searcherManager::maybeRefreshBlocking);
+    }
+
+    private static void write(IndexAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexAction {
+        void run() throws IOException;
+    }
+
+    private record Hit(Document document, float score) {
+    }
+}
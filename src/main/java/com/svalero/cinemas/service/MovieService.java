@@ -1,76 +1,195 @@
 package com.svalero.cinemas.service;
 
 import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.ChangeEventDto;
+import com.svalero.cinemas.domain.dto.CursorPage;
+import com.svalero.cinemas.domain.dto.MovieFilter;
 import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.MovieSearchHitDto;
+import com.svalero.cinemas.domain.dto.MovieSummaryDto;
+import com.svalero.cinemas.domain.dto.ResourceValidator;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.exception.InvalidMovieQueryException;
 import com.svalero.cinemas.exception.MovieNotFoundException;
+import com.svalero.cinemas.exception.MovieVersionConflictException;
+import com.svalero.cinemas.mapper.MovieMapper;
 import com.svalero.cinemas.repository.MovieRepository;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import com.svalero.cinemas.repository.MovieSpecifications;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ReflectionUtils;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.lang.reflect.Field;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+@Observed(name = "cinemas.service")
 @Service
 public class MovieService {
 
-    private final MovieRepository movieRepository;
+    // Columnas por las que se permite ordenar el listado
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "title", "genre", "durationMinutes", "releaseDate", "currentlyShowing");
+    // Peliculas por consulta al expandir sesiones: una pagina completa (CursorPage.MAX_LIMIT) va en una sola consulta
+    private static final int EXPAND_BATCH_SIZE = CursorPage.MAX_LIMIT;
 
-    @Autowired
-    private ModelMapper modelMapper;
+    private final MovieRepository movieRepository;
+    private final ScreeningRepository screeningRepository;
+    private final CatalogCacheService catalogCacheService;
+    private final MovieMapper movieMapper;
+    private final MoviePatchFields moviePatchFields;
+    private final ScreeningScheduleIndex scheduleIndex;
+    private final RoomScheduleGuard roomScheduleGuard;
+    private final MovieSearchIndex searchIndex;
+    private final NowShowingBoard nowShowingBoard;
+    private final ChangeFeed changeFeed;
+    // PATCH con UPDATE directo de las columnas en vez de cargar y guardar la entidad
+    private final boolean targetedPatch;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public MovieService(MovieRepository movieRepository) {
+    public MovieService(MovieRepository movieRepository, ScreeningRepository screeningRepository,
+                        CatalogCacheService catalogCacheService, MovieMapper movieMapper,
+                        MoviePatchFields moviePatchFields, ScreeningScheduleIndex scheduleIndex,
+                        RoomScheduleGuard roomScheduleGuard, MovieSearchIndex searchIndex,
+                        NowShowingBoard nowShowingBoard, ChangeFeed changeFeed,
+                        @Value("${cinemas.movies.targeted-patch:false}") boolean targetedPatch) {
         this.movieRepository = movieRepository;
+        this.screeningRepository = screeningRepository;
+        this.catalogCacheService = catalogCacheService;
+        this.movieMapper = movieMapper;
+        this.moviePatchFields = moviePatchFields;
+        this.scheduleIndex = scheduleIndex;
+        this.roomScheduleGuard = roomScheduleGuard;
+        this.searchIndex = searchIndex;
+        this.nowShowingBoard = nowShowingBoard;
+        this.changeFeed = changeFeed;
+        this.targetedPatch = targetedPatch;
     }
-    public void setModelMapper(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
-    }
-
 
-    // Obtener todas las películas
-    public List<Movie> findAll(String title, String genre, Integer durationMinutes) {
 
+    // Obtener todas las películas que cumplen los filtros, en una única consulta
+    @Transactional(readOnly = true)
+    public List<Movie> findAll(MovieFilter filter, Sort sort) {
+        checkSortable(sort);
+        return movieRepository.findAll(MovieSpecifications.fromFilter(filter), sort);
+    }
 
-        List<Movie> movieList;
+    // Pagina de peliculas ordenada por id, empezando despues del cursor indicado
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> findPage(MovieFilter filter, Long after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        Specification<Movie> spec = MovieSpecifications.fromFilter(filter)
+                .and(MovieSpecifications.idAfter(after == null ? 0L : after));
+        List<Movie> movies = movieRepository.findBy(spec, query -> query
+                .sortBy(Sort.by("id"))
+                .limit(pageSize + 1)
+                .all());
+        return CursorPage.of(movies, pageSize, Movie::getId);
+    }
 
-        boolean hasTitle = !title.isEmpty();
-        boolean hasGenre = !genre.isEmpty();
-        boolean hasDurationMinutes = durationMinutes != null;
+    // Recorre todas las peliculas una a una, sin sus sesiones; cada entidad se desengancha del contexto de persistencia
+    // despues de consumirla para que la memoria no crezca con el tamaño de la tabla
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<MovieSummaryDto> consumer) {
+        try (Stream<Movie> movies = movieRepository.streamAll()) {
+            movies.forEach(movie -> {
+                consumer.accept(movieMapper.toSummary(movie));
+                entityManager.detach(movie);
+            });
+        }
+    }
 
-        if (hasTitle && hasGenre && hasDurationMinutes) {
-            movieList = movieRepository.findByTitleAndGenreAndDurationMinutes(title, genre, durationMinutes);
-        } else if (hasTitle && hasGenre) {
-            movieList = movieRepository.findByTitleAndGenre(title,genre);
-        } else if (hasTitle && hasDurationMinutes) {
-            movieList = movieRepository.findByTitleAndDurationMinutes(title,durationMinutes);
-        } else if (hasGenre && hasDurationMinutes) {
-            movieList = movieRepository.findByGenreAndDurationMinutes(genre, durationMinutes);
-        } else if (hasTitle) {
-            movieList = movieRepository.findByTitle(title);
-        } else if (hasGenre) {
-            movieList = movieRepository.findByGenre(genre);
-        } else if (hasDurationMinutes) {
-            movieList = movieRepository.findByDurationMinutes(durationMinutes);
-        } else {
-            movieList = movieRepository.findAll();
+    // Vista de listado. Con withScreenings se añaden las sesiones de todas las peliculas con una consulta por cada
+    // EXPAND_BATCH_SIZE peliculas, en vez de cargar la coleccion de cada una por separado
+    @Transactional(readOnly = true)
+    public List<MovieSummaryDto> toSummaries(List<Movie> movies, boolean withScreenings) {
+        List<MovieSummaryDto> summaries = movies.stream().map(movieMapper::toSummary).toList();
+        if (withScreenings) {
+            for (int from = 0; from < summaries.size(); from += EXPAND_BATCH_SIZE) {
+                addScreenings(summaries.subList(from, Math.min(from + EXPAND_BATCH_SIZE, summaries.size())));
+            }
         }
+        return summaries;
+    }
 
-        return modelMapper.map(movieList, new TypeToken<List<Movie>>() {}.getType());
+    @Transactional(readOnly = true)
+    public CursorPage<MovieSummaryDto> toSummaries(CursorPage<Movie> page, boolean withScreenings) {
+        return new CursorPage<>(toSummaries(page.getItems(), withScreenings), page.getNextCursor());
+    }
+
+    // Detalle de una pelicula, siempre con sus sesiones
+    @Transactional(readOnly = true)
+    public MovieSummaryDto findDetail(Long id) {
+        Movie movie = movieRepository.findById(id)
+                .orElseThrow(() -> new MovieNotFoundException("Movie not found with id: " + id));
+        return toSummaries(List.of(movie), true).get(0);
+    }
+
+    private void addScreenings(List<MovieSummaryDto> movies) {
+        Map<Long, List<ScreeningOutDto>> screenings = new HashMap<>();
+        screeningRepository.findWithMovieTitleByMovieIds(movies.stream().map(MovieSummaryDto::getId).toList())
+                .forEach(screening -> screenings.computeIfAbsent(screening.getMovieId(), movieId -> new ArrayList<>()).add(screening));
+        movies.forEach(movie -> movie.setScreenings(screenings.getOrDefault(movie.getId(), List.of())));
     }
 
     // Buscar por ID
+    @Transactional(readOnly = true)
     public Optional<Movie> findById(Long id) {
         return movieRepository.findById(id);
     }
 
+    // ETag y Last-Modified de GET /movies/{id}: version de la pelicula, numero de sesiones y su ultimo cambio.
+    // Una sola consulta agregada, sin cargar la pelicula ni sus sesiones
+    @Transactional(readOnly = true)
+    public Optional<ResourceValidator> findValidator(Long id) {
+        return movieRepository.findVersionById(id).map(movie -> {
+            LocalDateTime lastModified = ResourceValidator.latest(movie.getLastModified(), movie.getScreeningsLastModified());
+            return new ResourceValidator(ResourceValidator.eTagOf(movie.getVersion(), movie.getScreeningCount(),
+                    ResourceValidator.micros(lastModified)), lastModified);
+        });
+    }
+
+    // Busqueda por palabras del titulo o el genero en el indice de busqueda, sin consultar la base de datos
+    public List<MovieSearchHitDto> search(String text, int limit) {
+        return searchIndex.search(text, limit);
+    }
+
+    public List<String> suggestTitles(String prefix, int limit) {
+        return searchIndex.suggest(prefix, limit);
+    }
+
+    // Cartelera precalculada: peliculas en cartelera con sus proximas sesiones, sin consultar la base de datos
+    public NowShowingBoard.Snapshot findNowShowing() {
+        return nowShowingBoard.current();
+    }
+
     // Buscar por título
+    @Transactional(readOnly = true)
     public List<Movie> findByTitle(String title) {
         List<Movie> movie = movieRepository.findByTitle(title);
         if (movie == null) {
@@ -81,10 +200,12 @@ public class MovieService {
     }
 
 
+    @Transactional(readOnly = true)
     public List<Movie> findByReleaseDate(LocalDate releaseDate) {
         return movieRepository.findByReleaseDate(releaseDate);
     }
 
+    @Transactional(readOnly = true)
     public List<Movie> findBycurrentlyShowing(boolean currentlyShowing) {
         return movieRepository.findAllMoviesByCurrentlyShowing(currentlyShowing);
     }
@@ -93,8 +214,23 @@ public class MovieService {
 
     // Crear nueva película
     public Movie create(MovieInDto movieInDto) {
-        Movie movie = modelMapper.map(movieInDto, Movie.class);
-        return movieRepository.save(movie);
+        Movie movie = movieMapper.toEntity(movieInDto);
+        Movie savedMovie = movieRepository.save(movie);
+        catalogCacheService.evictMovie(savedMovie.getId());
+        searchIndex.put(savedMovie);
+        nowShowingBoard.putMovie(savedMovie);
+        return savedMovie;
+    }
+
+    // Alta de varias peliculas en una sola transaccion, con los inserts en lotes JDBC (WriteCoalescer)
+    @Transactional
+    public List<Movie> createAll(List<MovieInDto> movieInDtos) {
+        List<Movie> savedMovies = new ArrayList<>(movieInDtos.size());
+        movieRepository.saveAll(movieInDtos.stream().map(movieMapper::toEntity).toList()).forEach(savedMovies::add);
+        catalogCacheService.evictMovieQueries();
+        searchIndex.putAll(savedMovies);
+        savedMovies.forEach(nowShowingBoard::putMovie);
+        return savedMovies;
     }
 
     // Actualizar película completa
@@ -102,35 +238,93 @@ public class MovieService {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new MovieNotFoundException("Movie not found with id: " + id));
 
-        movie.setTitle(movieInDto.getTitle());
-        movie.setGenre(movieInDto.getGenre());
-        movie.setDurationMinutes(movieInDto.getDurationMinutes());
-        movie.setReleaseDate(movieInDto.getReleaseDate());
-        movie.setCurrentlyShowing(movieInDto.isCurrentlyShowing());
-
-        return movieRepository.save(movie);
-//        No funciona no se porque, si lo muevo manualmente va bien
-//        modelMapper.map(movieInDto, movie);
-//        return movieRepository.save(movie);
-
-
+        int previousDuration = movie.getDurationMinutes();
+        movieMapper.updateEntity(movieInDto, movie);
+
+        // Mas larga puede pisar la siguiente sesion de alguna sala: se comprueba con sus salas bloqueadas
+        Supplier<Movie> save = () -> {
+            Movie savedMovie = movieRepository.save(movie);
+            catalogCacheService.evictMovie(id);
+            scheduleIndex.updateMovie(id, savedMovie.getTitle(), savedMovie.getDurationMinutes());
+            searchIndex.put(savedMovie);
+            nowShowingBoard.putMovie(savedMovie);
+            return savedMovie;
+        };
+        return movie.getDurationMinutes() > previousDuration
+                ? roomScheduleGuard.changeMovieDuration(id, movie.getDurationMinutes(), save)
+                : save.get();
+    }
 
+    // Actualización parcial (PATCH). expectedVersion (cabecera If-Match) es opcional: si viene y la pelicula ya ha
+    // cambiado, se rechaza con conflicto en vez de pisar los cambios de otro
+    @Transactional
+    public Movie updatePartial(Long id, Map<String, Object> updates, Long expectedVersion) {
+        List<MoviePatchFields.PatchValue> values = moviePatchFields.resolve(updates);
+        Supplier<Movie> update = () -> targetedPatch
+                ? updateColumns(id, values, expectedVersion)
+                : updateLoaded(id, values, expectedVersion);
+        // Sin leer la pelicula no se sabe si la duracion crece: siempre que venga se comprueban sus sesiones
+        Movie movie = values.stream()
+                .filter(value -> value.field().name().equals("durationMinutes") && value.value() instanceof Integer)
+                .findFirst()
+                .map(duration -> roomScheduleGuard.changeMovieDuration(id, (Integer) duration.value(), update))
+                .orElseGet(update);
+        catalogCacheService.evictMovie(id);
+        scheduleIndex.updateMovie(id, movie.getTitle(), movie.getDurationMinutes());
+        searchIndex.put(movie);
+        nowShowingBoard.putMovie(movie);
+        return movie;
     }
 
-    // Actualización parcial (PATCH)
-    public Movie updatePartial(Long id, Map<String, Object> updates) {
+    // Carga la pelicula y cambia solo los campos recibidos; con @DynamicUpdate el UPDATE lleva solo esas columnas
+    // y la comprobacion de version
+    private Movie updateLoaded(Long id, List<MoviePatchFields.PatchValue> values, Long expectedVersion) {
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new MovieNotFoundException("Movie not found with id: " + id));
+        if (expectedVersion != null && !expectedVersion.equals(movie.getVersion())) {
+            throw new MovieVersionConflictException("Movie " + id + " is at version " + movie.getVersion() + ", not " + expectedVersion);
+        }
+        values.forEach(value -> value.applyTo(movie));
+        try {
+            entityManager.flush();
+            return movie;
+        } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+            throw new MovieVersionConflictException("Movie " + id + " was modified concurrently");
+        }
+    }
 
-        updates.forEach((key, value) -> {
-            Field field = ReflectionUtils.findField(Movie.class, key);
-            if (field != null) {
-                field.setAccessible(true);
-                ReflectionUtils.setField(field, movie, value);
+    // Un unico UPDATE ... SET con las columnas recibidas que incrementa la version, sin leer antes la pelicula.
+    // Dos PATCH concurrentes sobre campos distintos no se pisan; con expectedVersion solo se aplica sobre esa version
+    private Movie updateColumns(Long id, List<MoviePatchFields.PatchValue> values, Long expectedVersion) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Movie> update = builder.createCriteriaUpdate(Movie.class);
+        Root<Movie> movie = update.from(Movie.class);
+        values.forEach(value -> update.set(value.field().name(), value.value()));
+        Path<Long> version = movie.get("version");
+        update.set(version, builder.sum(version, 1L));
+        update.set(movie.<LocalDateTime>get("lastModified"), LocalDateTime.now());
+        Predicate sameId = builder.equal(movie.get("id"), id);
+        update.where(expectedVersion == null ? sameId : builder.and(sameId, builder.equal(version, expectedVersion)));
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            if (!movieRepository.existsById(id)) {
+                throw new MovieNotFoundException("Movie not found with id: " + id);
             }
-        });
+            throw new MovieVersionConflictException("Movie " + id + " is no longer at version " + expectedVersion);
+        }
+        // Hibernate no invalida la cache de segundo nivel hasta el final de la transaccion: se lee de la base de datos
+        Movie updated = entityManager.find(Movie.class, id, Map.of("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS));
+        // El UPDATE masivo no pasa por ChangeFeedListener
+        changeFeed.movieChanged(ChangeEventDto.UPDATED, id, movieMapper.toSummary(updated));
+        return updated;
+    }
 
-        return movieRepository.save(movie);
+    private void checkSortable(Sort sort) {
+        sort.forEach(order -> {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidMovieQueryException("Cannot sort movies by: " + order.getProperty());
+            }
+        });
     }
 
     // Eliminar película
@@ -139,5 +333,9 @@ public class MovieService {
             throw new MovieNotFoundException("Movie not found with id: " + id);
         }
         movieRepository.deleteById(id);
+        catalogCacheService.evictMovie(id);
+        scheduleIndex.removeMovie(id);
+        searchIndex.remove(id);
+        nowShowingBoard.removeMovie(id);
     }
 }
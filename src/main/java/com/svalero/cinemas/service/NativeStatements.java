@@ -0,0 +1,20 @@
+package com.svalero.cinemas.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+
+// Consultas SQL nativas sobre tablas que no son entidades cacheadas (theater_rooms, screening_daily_stats...).
+// Hibernate no sabe que tablas toca una consulta nativa: sin declararlas, cada escritura vacia la cache de segundo
+// nivel de todas las entidades y cada lectura obliga a volcar antes todos los cambios pendientes. Con la tabla
+// declarada solo afecta a lo que depende de ella
+final class NativeStatements {
+
+    private NativeStatements() {
+    }
+
+    static NativeQuery<?> on(EntityManager entityManager, String table, String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(table);
+    }
+}
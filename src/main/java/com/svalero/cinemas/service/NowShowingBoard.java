@@ -0,0 +1,186 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.NowShowingMovieDto;
+import com.svalero.cinemas.domain.dto.ResourceValidator;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.repository.MovieRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Cartelera (GET /movies/now-showing): las peliculas en cartelera con sus proximas sesiones por sala, ya calculada.
+// Las lecturas devuelven la copia actual, que nunca cambia: cada alta, cambio o baja de una pelicula o sesion
+// recalcula solo las peliculas afectadas en una copia nueva y la sustituye de golpe. Las sesiones salen de
+// ScreeningScheduleIndex, asi que ni construirla ni leerla va a la base de datos (salvo las peliculas al arrancar).
+// Cada roll-interval se quitan las sesiones que ya han empezado
+@Component
+public class NowShowingBoard implements SmartLifecycle {
+
+    private static final Comparator<NowShowingMovieDto> BY_TITLE = Comparator
+            .comparing(NowShowingMovieDto::getTitle)
+            .thenComparing(NowShowingMovieDto::getId);
+
+    private final Logger logger = LoggerFactory.getLogger(NowShowingBoard.class);
+
+    private final MovieRepository movieRepository;
+    private final ScreeningScheduleIndex scheduleIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int screeningsPerRoom;
+
+    // Datos de las peliculas en cartelera, sin sesiones. Solo se tocan dentro de los metodos synchronized
+    private final Map<Long, NowShowingMovieDto> showing = new HashMap<>();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(
+            new Snapshot(Long.toHexString(ThreadLocalRandom.current().nextLong()), 0, List.of(), null));
+    private volatile boolean running;
+
+    public NowShowingBoard(MovieRepository movieRepository, ScreeningScheduleIndex scheduleIndex,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${cinemas.now-showing.screenings-per-room:3}") int screeningsPerRoom) {
+        this.movieRepository = movieRepository;
+        this.scheduleIndex = scheduleIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.screeningsPerRoom = screeningsPerRoom;
+    }
+
+    // Se calcula en start(): despues de cargar ScreeningScheduleIndex y antes de que el servidor web acepte peticiones
+    @Override
+    public void start() {
+        long start = System.nanoTime();
+        List<NowShowingMovieDto> movies = transactionTemplate.execute(status ->
+                movieRepository.findAllMoviesByCurrentlyShowing(true).stream().map(NowShowingBoard::withoutScreenings).toList());
+        synchronized (this) {
+            movies.forEach(movie -> showing.put(movie.getId(), movie));
+            rebuild(showing.keySet());
+        }
+        running = true;
+        logger.info("Now showing board built: {} movies ({} ms)", showing.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    public Snapshot current() {
+        return snapshot.get();
+    }
+
+    // La pelicula entra, cambia o sale de la cartelera segun currentlyShowing
+    public void putMovie(Movie movie) {
+        NowShowingMovieDto updated = movie.isCurrentlyShowing() ? withoutScreenings(movie) : null;
+        Long movieId = movie.getId();
+        AfterCommit.run(() -> updateMovie(movieId, updated));
+    }
+
+    public void removeMovie(Long movieId) {
+        AfterCommit.run(() -> updateMovie(movieId, null));
+    }
+
+    // Cambian las sesiones de estas peliculas. Hay que llamarlo despues de actualizar ScreeningScheduleIndex
+    public void refreshMovies(Collection<Long> movieIds) {
+        List<Long> ids = List.copyOf(movieIds);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                rebuild(ids);
+            }
+        });
+    }
+
+    // Recalcula las peliculas cuya primera sesion ya ha empezado
+    @Scheduled(fixedDelayString = "${cinemas.now-showing.roll-interval:30s}")
+    public synchronized void rollForward() {
+        Snapshot current = snapshot.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (current.nextChange() == null || current.nextChange().isAfter(now)) {
+            return;
+        }
+        rebuild(current.movies().stream()
+                .filter(movie -> !movie.getNextScreenings().isEmpty()
+                        && !movie.getNextScreenings().get(0).getScreeningTime().isAfter(now))
+                .map(NowShowingMovieDto::getId)
+                .toList());
+    }
+
+    private synchronized void updateMovie(Long movieId, NowShowingMovieDto movie) {
+        if (movie == null) {
+            showing.remove(movieId);
+        } else {
+            showing.put(movieId, movie);
+        }
+        rebuild(List.of(movieId));
+    }
+
+    // Copia nueva con las peliculas indicadas recalculadas y las demas tal cual
+    private void rebuild(Collection<Long> movieIds) {
+        Snapshot current = snapshot.get();
+        Map<Long, NowShowingMovieDto> movies = current.movies().stream()
+                .collect(Collectors.toMap(NowShowingMovieDto::getId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        for (Long movieId : movieIds) {
+            NowShowingMovieDto movie = showing.get(movieId);
+            if (movie == null) {
+                movies.remove(movieId);
+            } else {
+                movies.put(movieId, new NowShowingMovieDto(movie.getId(), movie.getTitle(), movie.getGenre(),
+                        movie.getDurationMinutes(), movie.getReleaseDate(), nextScreenings(movieId, now)));
+            }
+        }
+        List<NowShowingMovieDto> board = movies.values().stream().sorted(BY_TITLE).toList();
+        LocalDateTime nextChange = board.stream()
+                .filter(movie -> !movie.getNextScreenings().isEmpty())
+                .map(movie -> movie.getNextScreenings().get(0).getScreeningTime())
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        snapshot.set(new Snapshot(current.instanceId(), current.revision() + 1, board, nextChange));
+    }
+
+    // Las proximas sesiones de la pelicula, como mucho screeningsPerRoom en cada sala
+    private List<ScreeningOutDto> nextScreenings(Long movieId, LocalDateTime from) {
+        Map<String, Integer> perRoom = new HashMap<>();
+        return scheduleIndex.findByMovie(movieId, from).stream()
+                .filter(screening -> perRoom.merge(screening.getTheaterRoom(), 1, Integer::sum) <= screeningsPerRoom)
+                .toList();
+    }
+
+    private static NowShowingMovieDto withoutScreenings(Movie movie) {
+        return new NowShowingMovieDto(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getDurationMinutes(),
+                movie.getReleaseDate(), List.of());
+    }
+
+    // Estado de la cartelera en un momento dado. instanceId y revision identifican la copia; nextChange es la primera
+    // sesion que empezara, cuando hay que volver a calcularla
+    public record Snapshot(String instanceId, long revision, List<NowShowingMovieDto> movies, LocalDateTime nextChange) {
+
+        public ResourceValidator validator() {
+            return new ResourceValidator(ResourceValidator.eTagOf(instanceId, revision), null);
+        }
+    }
+}
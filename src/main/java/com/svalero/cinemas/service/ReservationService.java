@@ -0,0 +1,218 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.ReservedSeat;
+import com.svalero.cinemas.domain.TheaterRoom;
+import com.svalero.cinemas.domain.dto.ReservationInDto;
+import com.svalero.cinemas.domain.dto.ReservationOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.SeatDto;
+import com.svalero.cinemas.domain.dto.SeatMapDto;
+import com.svalero.cinemas.exception.InvalidReservationException;
+import com.svalero.cinemas.exception.ReservationNotFoundException;
+import com.svalero.cinemas.exception.ScreeningNotFoundException;
+import com.svalero.cinemas.exception.SeatUnavailableException;
+import com.svalero.cinemas.repository.ReservedSeatRepository;
+import com.svalero.cinemas.repository.TheaterRoomRepository;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Venta de entradas. Las butacas de cada sesion estan en memoria (SeatInventory, un bit por butaca) y se cargan
+// de la base de datos la primera vez que se pide la sesion. Reservar retiene las butacas durante hold-ttl;
+// confirmar las da por vendidas y las deja en la cola de escritura diferida (ReservedSeatWriter).
+// Ninguna de las dos operaciones toca la base de datos, asi que una sesion muy demandada no se serializa
+// en ningun bloqueo de fila. Cada sesion debe venderse desde un unico nodo
+@Observed(name = "cinemas.service")
+@Service
+public class ReservationService {
+
+    private final Map<Long, SeatInventory> inventories = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+    private final ScreeningScheduleIndex scheduleIndex;
+    private final TheaterRoomRepository theaterRoomRepository;
+    private final ReservedSeatRepository reservedSeatRepository;
+    private final ReservedSeatWriter reservedSeatWriter;
+    private final Duration holdTtl;
+
+    public ReservationService(ScreeningScheduleIndex scheduleIndex, TheaterRoomRepository theaterRoomRepository,
+                              ReservedSeatRepository reservedSeatRepository, ReservedSeatWriter reservedSeatWriter,
+                              @Value("${cinemas.reservations.hold-ttl:5m}") Duration holdTtl) {
+        this.scheduleIndex = scheduleIndex;
+        this.theaterRoomRepository = theaterRoomRepository;
+        this.reservedSeatRepository = reservedSeatRepository;
+        this.reservedSeatWriter = reservedSeatWriter;
+        this.holdTtl = holdTtl;
+    }
+
+    public SeatMapDto getSeatMap(Long screeningId) {
+        ScreeningOutDto screening = findScreening(screeningId);
+        SeatInventory inventory = inventoryOf(screening);
+        List<String> rows = new ArrayList<>(inventory.getSeatRows());
+        for (int row = 0; row < inventory.getSeatRows(); row++) {
+            StringBuilder seats = new StringBuilder(inventory.getSeatsPerRow());
+            for (int seat = 0; seat < inventory.getSeatsPerRow(); seat++) {
+                seats.append(inventory.isTaken(row * inventory.getSeatsPerRow() + seat) ? 'X' : '.');
+            }
+            rows.add(seats.toString());
+        }
+        return new SeatMapDto(screeningId, screening.getTheaterRoom(), inventory.getSeatRows(), inventory.getSeatsPerRow(),
+                inventory.available(), rows);
+    }
+
+    // Retiene las butacas pedidas (o las primeras quantity libres) hasta que se confirme o caduque la retencion
+    public ReservationOutDto hold(Long screeningId, ReservationInDto reservationInDto) {
+        ScreeningOutDto screening = findScreening(screeningId);
+        SeatInventory inventory = inventoryOf(screening);
+        boolean bySeats = reservationInDto.getSeats() != null && !reservationInDto.getSeats().isEmpty();
+        if (bySeats == (reservationInDto.getQuantity() != null)) {
+            throw new InvalidReservationException("Send either 'seats' or 'quantity'");
+        }
+
+        int[] seats;
+        if (bySeats) {
+            seats = toIndexes(reservationInDto.getSeats(), inventory);
+            if (!inventory.claim(seats)) {
+                throw new SeatUnavailableException("Some of the requested seats are already taken");
+            }
+        } else {
+            seats = inventory.claimAny(reservationInDto.getQuantity());
+            if (seats == null) {
+                throw new SeatUnavailableException("Only " + inventory.available() + " seats left for screening " + screeningId);
+            }
+        }
+
+        Hold hold = new Hold(UUID.randomUUID().toString(), screeningId, seats, seats.length * screening.getTicketPrice(),
+                LocalDateTime.now().plus(holdTtl));
+        holds.put(hold.id, hold);
+        return toOutDto(hold, ReservationOutDto.HELD, inventory);
+    }
+
+    public ReservationOutDto confirm(Long screeningId, String reservationId) {
+        SeatInventory inventory = inventoryOf(findScreening(screeningId));
+        Hold hold = takeHold(screeningId, reservationId);
+        LocalDateTime now = LocalDateTime.now();
+        List<ReservedSeat> seats = Arrays.stream(hold.seats)
+                .mapToObj(seat -> new ReservedSeat(null, screeningId, seat, hold.id, now))
+                .toList();
+        reservedSeatWriter.enqueue(seats);
+        return toOutDto(hold, ReservationOutDto.CONFIRMED, inventory);
+    }
+
+    // Cancela una retencion sin confirmar y deja libres sus butacas
+    public void release(Long screeningId, String reservationId) {
+        SeatInventory inventory = inventoryOf(findScreening(screeningId));
+        inventory.release(takeHold(screeningId, reservationId).seats);
+    }
+
+    @Scheduled(fixedDelayString = "${cinemas.reservations.expiry-interval:1s}")
+    public void expireHolds() {
+        expireHolds(LocalDateTime.now());
+    }
+
+    // Suelta las retenciones caducadas y olvida las sesiones que ya no existen
+    void expireHolds(LocalDateTime now) {
+        holds.values().removeIf(hold -> {
+            if (hold.expiresAt.isAfter(now) || !hold.settle()) {
+                return false;
+            }
+            SeatInventory inventory = inventories.get(hold.screeningId);
+            if (inventory != null) {
+                inventory.release(hold.seats);
+            }
+            return true;
+        });
+        inventories.keySet().removeIf(screeningId -> scheduleIndex.get(screeningId).isEmpty());
+    }
+
+    // Confirmar, cancelar y caducar compiten por la misma retencion: solo gana el primero que la liquida
+    private Hold takeHold(Long screeningId, String reservationId) {
+        Hold hold = holds.get(reservationId);
+        if (hold == null || !hold.screeningId.equals(screeningId) || hold.expiresAt.isBefore(LocalDateTime.now()) || !hold.settle()) {
+            throw new ReservationNotFoundException("Reservation " + reservationId + " not found or expired");
+        }
+        holds.remove(reservationId);
+        return hold;
+    }
+
+    private ScreeningOutDto findScreening(Long screeningId) {
+        return scheduleIndex.get(screeningId)
+                .orElseThrow(() -> new ScreeningNotFoundException("Screening with ID " + screeningId + " not found"));
+    }
+
+    // El plano de la sala y las butacas ya vendidas (guardadas o no) se leen una sola vez por sesion
+    private SeatInventory inventoryOf(ScreeningOutDto screening) {
+        return inventories.computeIfAbsent(screening.getId(), screeningId -> {
+            TheaterRoom room = theaterRoomRepository.findById(screening.getTheaterRoom())
+                    .orElseGet(() -> new TheaterRoom(screening.getTheaterRoom(), TheaterRoom.DEFAULT_SEAT_ROWS,
+                            TheaterRoom.DEFAULT_SEATS_PER_ROW));
+            SeatInventory inventory = new SeatInventory(room.getSeatRows(), room.getSeatsPerRow());
+            int[] sold = Stream.concat(reservedSeatRepository.findSeatIndexesByScreeningId(screeningId).stream(),
+                            reservedSeatWriter.findUnwrittenSeatIndexes(screeningId).stream())
+                    .mapToInt(Integer::intValue)
+                    .filter(seat -> seat < inventory.capacity())
+                    // Una butaca fallida porque otra reserva ya la tenia sale dos veces, y claim no admite repetidas
+                    .distinct()
+                    .toArray();
+            inventory.claim(sold);
+            return inventory;
+        });
+    }
+
+    private static int[] toIndexes(List<SeatDto> seats, SeatInventory inventory) {
+        int[] indexes = new int[seats.size()];
+        for (int i = 0; i < seats.size(); i++) {
+            SeatDto seat = seats.get(i);
+            if (seat.getRow() > inventory.getSeatRows() || seat.getSeat() > inventory.getSeatsPerRow()) {
+                throw new InvalidReservationException("Seat " + seat.getRow() + "-" + seat.getSeat() + " does not exist, the room has "
+                        + inventory.getSeatRows() + " rows of " + inventory.getSeatsPerRow() + " seats");
+            }
+            indexes[i] = (seat.getRow() - 1) * inventory.getSeatsPerRow() + (seat.getSeat() - 1);
+        }
+        if (Arrays.stream(indexes).distinct().count() != indexes.length) {
+            throw new InvalidReservationException("The same seat is requested twice");
+        }
+        return indexes;
+    }
+
+    private static ReservationOutDto toOutDto(Hold hold, String status, SeatInventory inventory) {
+        List<SeatDto> seats = Arrays.stream(hold.seats)
+                .mapToObj(seat -> new SeatDto(seat / inventory.getSeatsPerRow() + 1, seat % inventory.getSeatsPerRow() + 1))
+                .toList();
+        return new ReservationOutDto(hold.id, hold.screeningId, status, seats, hold.totalPrice,
+                status.equals(ReservationOutDto.HELD) ? hold.expiresAt : null);
+    }
+
+    private static final class Hold {
+        private final String id;
+        private final Long screeningId;
+        private final int[] seats;
+        private final double totalPrice;
+        private final LocalDateTime expiresAt;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Hold(String id, Long screeningId, int[] seats, double totalPrice, LocalDateTime expiresAt) {
+            this.id = id;
+            this.screeningId = screeningId;
+            this.seats = seats;
+            this.totalPrice = totalPrice;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.ReservedSeat;
+import com.svalero.cinemas.repository.ReservedSeatRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Escritura diferida de las butacas vendidas: confirmar una reserva solo la encola y cada flush-interval se
+// guardan las pendientes en lotes de batch-size, una transaccion por lote con los inserts agrupados en JDBC.
+// Asi la venta no espera a la base de datos ni compite por bloqueos de fila. Al parar la aplicacion se vacia la cola.
+// Una butaca que no se puede guardar ya se ha dado por vendida: se anota en failed_seat_writes (y en la metrica
+// cinemas.reservations.seat-writes.failed) y reconcile() la reintenta. Si ni siquiera se puede anotar vuelve a la cola
+@Component
+public class ReservedSeatWriter {
+
+    private final Logger logger = LoggerFactory.getLogger(ReservedSeatWriter.class);
+
+    private final Queue<ReservedSeat> pending = new ConcurrentLinkedQueue<>();
+
+    private final ReservedSeatRepository reservedSeatRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter failedWrites;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ReservedSeatWriter(ReservedSeatRepository reservedSeatRepository, JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                              @Value("${cinemas.reservations.write-batch-size:500}") int batchSize) {
+        this.reservedSeatRepository = reservedSeatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.failedWrites = Counter.builder("cinemas.reservations.seat-writes.failed")
+                .description("Confirmed seats that could not be written to reserved_seats")
+                .register(meterRegistry);
+        this.batchSize = batchSize;
+    }
+
+    public void enqueue(Collection<ReservedSeat> seats) {
+        pending.addAll(seats);
+    }
+
+    // Guarda todo lo pendiente; devuelve cuantas butacas se han escrito
+    @Scheduled(fixedDelayString = "${cinemas.reservations.flush-interval:250ms}")
+    @PreDestroy
+    public synchronized int flush() {
+        int written = 0;
+        List<ReservedSeat> batch = new ArrayList<>(batchSize);
+        List<ReservedSeat> unrecorded = new ArrayList<>();
+        ReservedSeat seat;
+        while ((seat = pending.poll()) != null) {
+            batch.add(seat);
+            if (batch.size() == batchSize) {
+                written += save(batch, unrecorded);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += save(batch, unrecorded);
+        }
+        // Para el siguiente flush: la base de datos no responde y no se ha podido guardar nada sobre ellas
+        pending.addAll(unrecorded);
+        return written;
+    }
+
+    // Butacas de la sesion vendidas pero pendientes de guardar en reserved_seats (en la cola o anotadas como fallidas)
+    public List<Integer> findUnwrittenSeatIndexes(Long screeningId) {
+        List<Integer> seats = new ArrayList<>(jdbcTemplate.queryForList(
+                "select seat_index from failed_seat_writes where screening_id = ?", Integer.class, screeningId));
+        pending.stream().filter(seat -> seat.getScreeningId().equals(screeningId)).forEach(seat -> seats.add(seat.getSeatIndex()));
+        return seats;
+    }
+
+    // Reintenta las butacas anotadas en failed_seat_writes; devuelve cuantas se han guardado. Las de sesiones que ya
+    // no existen se descartan y las que siguen fallando (la butaca la tiene otra reserva) se quedan con el nuevo error
+    @Scheduled(fixedDelayString = "${cinemas.reservations.reconcile-interval:1m}")
+    public synchronized int reconcile() {
+        jdbcTemplate.update("delete from failed_seat_writes where not exists "
+                + "(select 1 from screenings s where s.id = failed_seat_writes.screening_id)");
+        List<ReservedSeat> failed = jdbcTemplate.query("select screening_id, seat_index, reservation_id, reserved_at "
+                        + "from failed_seat_writes order by failed_at",
+                (row, number) -> new ReservedSeat(null, row.getLong("screening_id"), row.getInt("seat_index"),
+                        row.getString("reservation_id"), row.getObject("reserved_at", LocalDateTime.class)));
+        int reconciled = 0;
+        for (ReservedSeat seat : failed) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    reservedSeatRepository.save(seat);
+                    jdbcTemplate.update("delete from failed_seat_writes where reservation_id = ? and seat_index = ?",
+                            seat.getReservationId(), seat.getSeatIndex());
+                });
+                reconciled++;
+            } catch (DataAccessException | PersistenceException e) {
+                jdbcTemplate.update("update failed_seat_writes set failed_at = ?, error = ? where reservation_id = ? and seat_index = ?",
+                        LocalDateTime.now(), errorOf(e), seat.getReservationId(), seat.getSeatIndex());
+            }
+        }
+        if (!failed.isEmpty()) {
+            logger.warn("Reconciled {} of {} failed seat writes", reconciled, failed.size());
+        }
+        return reconciled;
+    }
+
+    // Si la base de datos rechaza el lote (la sesion se ha borrado, o otro nodo vendio la butaca) se repite
+    // fila a fila para no perder las demas. Los errores del flush llegan de Hibernate sin traducir
+    private int save(List<ReservedSeat> batch, List<ReservedSeat> unrecorded) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                reservedSeatRepository.saveAll(batch);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            return batch.size();
+        } catch (DataAccessException | PersistenceException e) {
+            logger.warn("Reserved seats batch rejected, retrying one by one: {}", errorOf(e));
+            int written = 0;
+            for (ReservedSeat seat : batch) {
+                seat.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> reservedSeatRepository.save(seat));
+                    written++;
+                } catch (DataAccessException | PersistenceException rowException) {
+                    logger.error("Could not store seat {} of screening {} (reservation {}): {}", seat.getSeatIndex(),
+                            seat.getScreeningId(), seat.getReservationId(), errorOf(rowException));
+                    if (!recordFailure(seat, errorOf(rowException))) {
+                        unrecorded.add(seat);
+                    }
+                }
+            }
+            return written;
+        }
+    }
+
+    private boolean recordFailure(ReservedSeat seat, String error) {
+        try {
+            jdbcTemplate.update("insert into failed_seat_writes (screening_id, seat_index, reservation_id, reserved_at, failed_at, error) "
+                            + "values (?, ?, ?, ?, ?, ?)",
+                    seat.getScreeningId(), seat.getSeatIndex(), seat.getReservationId(), seat.getReservedAt(),
+                    LocalDateTime.now(), error);
+        } catch (DuplicateKeyException e) {
+            // Ya estaba anotada
+            return true;
+        } catch (DataAccessException e) {
+            logger.error("Could not record the failed seat {} of screening {}: {}", seat.getSeatIndex(), seat.getScreeningId(),
+                    errorOf(e));
+            return false;
+        }
+        failedWrites.increment();
+        return true;
+    }
+
+    private static String errorOf(RuntimeException e) {
+        String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -0,0 +1,212 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.RoomSlot;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.exception.ScreeningConflictException;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Evita que una sala tenga dos sesiones a la vez. Cada sala tiene su propio lock en memoria, asi que las altas
+// en salas distintas no compiten entre si, y ademas su fila en theater_rooms, que se bloquea con select ... for update
+// durante la transaccion: con varios nodos contra la misma base de datos es esa fila la que serializa las altas.
+// El solape lo decide la base de datos, que ve tambien lo que hayan guardado o borrado otros nodos: el indice en memoria
+// (ScreeningScheduleIndex) de este nodo puede no estar al dia y solo sirve de pista
+@Component
+public class RoomScheduleGuard {
+
+    private final Map<String, ReentrantLock> roomLocks = new ConcurrentHashMap<>();
+
+    private final ScreeningRepository screeningRepository;
+    private final MovieRepository movieRepository;
+    private final ScreeningScheduleIndex scheduleIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RoomScheduleGuard(ScreeningRepository screeningRepository, MovieRepository movieRepository,
+                             ScreeningScheduleIndex scheduleIndex, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager) {
+        this.screeningRepository = screeningRepository;
+        this.movieRepository = movieRepository;
+        this.scheduleIndex = scheduleIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Ejecuta work en una transaccion (o en la que ya hubiera) con las salas bloqueadas en memoria y en la base de datos.
+    // Los locks se sueltan al terminar la transaccion, despues de que el indice haya recibido los cambios confirmados
+    public <T> T inRooms(Collection<String> rooms, Supplier<T> work) {
+        // Siempre en el mismo orden, para que dos operaciones sobre varias salas no se bloqueen mutuamente
+        List<String> ordered = rooms.stream().distinct().sorted().toList();
+        List<ReentrantLock> locks = ordered.stream()
+                .map(room -> roomLocks.computeIfAbsent(room, name -> new ReentrantLock()))
+                .toList();
+        locks.forEach(ReentrantLock::lock);
+        AtomicBoolean releaseRegistered = new AtomicBoolean();
+        try {
+            return transactionTemplate.execute(status -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int completionStatus) {
+                        locks.forEach(ReentrantLock::unlock);
+                    }
+                });
+                releaseRegistered.set(true);
+                ordered.forEach(this::lockRoomRow);
+                return work.get();
+            });
+        } catch (RuntimeException | Error e) {
+            // Si ni siquiera se pudo abrir la transaccion nadie mas va a soltar los locks
+            if (!releaseRegistered.get()) {
+                locks.forEach(ReentrantLock::unlock);
+            }
+            throw e;
+        }
+    }
+
+    // Lanza ScreeningConflictException si [start, start + durationMinutes) se solapa con otra sesion de la sala.
+    // Hay que llamarlo dentro de inRooms con esa sala
+    public void checkFree(String room, LocalDateTime start, int durationMinutes, Long screeningId) {
+        // La sesion que senale el indice se mira primero, pero solo si sigue en la base de datos y sigue solapando
+        Optional<Long> hint = scheduleIndex.findOverlap(room, start, durationMinutes, screeningId).map(ScreeningOutDto::getId);
+        LocalDateTime earliest = start.minusMinutes(movieRepository.findMaxDurationMinutes());
+        List<RoomSlot> slots = screeningRepository.findRoomSlots(room, earliest, start.plusMinutes(durationMinutes)).stream()
+                .sorted(Comparator.comparing((RoomSlot slot) -> !slot.getScreeningId().equals(hint.orElse(null))))
+                .toList();
+        for (RoomSlot other : slots) {
+            if (!other.getScreeningId().equals(screeningId) && endOf(other, other.getDurationMinutes()).isAfter(start)) {
+                throw conflict(room, other.getScreeningId(), other.getScreeningTime());
+            }
+        }
+    }
+
+    // Para muchas sesiones nuevas a la vez (importacion masiva): una consulta por sala con todo el rango y las nuevas
+    // tambien se comprueban entre si, en orden. Devuelve, en la misma posicion, el motivo del conflicto o null si cabe.
+    // Hay que llamarlo dentro de inRooms con todas sus salas
+    public List<String> findConflicts(List<RoomSlot> candidates) {
+        String[] conflicts = new String[candidates.size()];
+        int longest = Math.max(movieRepository.findMaxDurationMinutes(),
+                candidates.stream().mapToInt(RoomSlot::getDurationMinutes).max().orElse(0));
+        Map<String, List<Integer>> byRoom = IntStream.range(0, candidates.size()).boxed()
+                .collect(Collectors.groupingBy(i -> candidates.get(i).getTheaterRoom()));
+        byRoom.forEach((room, positions) -> {
+            LocalDateTime from = positions.stream().map(i -> candidates.get(i).getScreeningTime())
+                    .min(Comparator.naturalOrder()).orElseThrow().minusMinutes(longest);
+            LocalDateTime to = positions.stream().map(i -> endOf(candidates.get(i), candidates.get(i).getDurationMinutes()))
+                    .max(Comparator.naturalOrder()).orElseThrow();
+            // Linea de tiempo de la sala por hora de inicio: las guardadas y las nuevas que se van aceptando
+            NavigableMap<LocalDateTime, List<RoomSlot>> timeline = new TreeMap<>();
+            screeningRepository.findRoomSlots(room, from, to).forEach(slot -> add(timeline, slot));
+            for (int i : positions) {
+                RoomSlot candidate = candidates.get(i);
+                LocalDateTime start = candidate.getScreeningTime();
+                LocalDateTime end = endOf(candidate, candidate.getDurationMinutes());
+                Optional<RoomSlot> other = timeline.subMap(start.minusMinutes(longest), true, end, false).values().stream()
+                        .flatMap(List::stream)
+                        .filter(slot -> endOf(slot, slot.getDurationMinutes()).isAfter(start))
+                        .findFirst();
+                if (other.isPresent()) {
+                    conflicts[i] = other.get().getScreeningId() == null
+                            ? "Room " + room + " is already booked by another row starting at " + other.get().getScreeningTime()
+                            : conflict(room, other.get().getScreeningId(), other.get().getScreeningTime()).getMessage();
+                } else {
+                    add(timeline, candidate);
+                }
+            }
+        });
+        return Arrays.asList(conflicts);
+    }
+
+    // Si una pelicula pasa a durar mas, sus sesiones pueden invadir la siguiente de la sala. Comprueba todas
+    // con la nueva duracion y ejecuta work (el cambio de la pelicula) con sus salas bloqueadas
+    public <T> T changeMovieDuration(Long movieId, int durationMinutes, Supplier<T> work) {
+        Map<String, List<RoomSlot>> byRoom = screeningRepository.findRoomSlotsByMovieId(movieId).stream()
+                .collect(Collectors.groupingBy(RoomSlot::getTheaterRoom));
+        return inRooms(byRoom.keySet(), () -> {
+            int longest = Math.max(movieRepository.findMaxDurationMinutes(), durationMinutes);
+            byRoom.forEach((room, own) -> {
+                // Todas las sesiones de la sala alrededor de las de la pelicula, en una consulta por sala
+                LocalDateTime from = own.get(0).getScreeningTime().minusMinutes(longest);
+                LocalDateTime to = own.get(own.size() - 1).getScreeningTime().plusMinutes(durationMinutes);
+                List<RoomSlot> slots = screeningRepository.findRoomSlots(room, from, to);
+                for (RoomSlot screening : own) {
+                    LocalDateTime start = screening.getScreeningTime();
+                    LocalDateTime end = start.plusMinutes(durationMinutes);
+                    for (RoomSlot other : slots) {
+                        int otherDuration = other.getMovieId().equals(movieId) ? durationMinutes : other.getDurationMinutes();
+                        if (!other.getScreeningId().equals(screening.getScreeningId())
+                                && other.getScreeningTime().isBefore(end) && endOf(other, otherDuration).isAfter(start)) {
+                            throw new ScreeningConflictException("Movie " + movieId + " cannot last " + durationMinutes
+                                    + " minutes: its screening " + screening.getScreeningId() + " would overlap screening "
+                                    + other.getScreeningId() + " at " + other.getScreeningTime() + " in room " + room);
+                        }
+                    }
+                }
+            });
+            return work.get();
+        });
+    }
+
+    // Bloquea la fila de la sala hasta el final de la transaccion; una sala nueva se crea y el insert la deja bloqueada.
+    // Si otro nodo crea la misma sala a la vez, el insert espera a que confirme y falla por clave duplicada: entonces
+    // la fila ya existe y se bloquea con otro select. El insert va por JdbcTemplate (misma conexion y transaccion) para
+    // que el error no deje la transaccion de Hibernate marcada para rollback
+    private void lockRoomRow(String room) {
+        if (selectForUpdate(room)) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("insert into theater_rooms (name) values (?)", room);
+        } catch (DuplicateKeyException e) {
+            selectForUpdate(room);
+        }
+    }
+
+    private boolean selectForUpdate(String room) {
+        return !NativeStatements.on(entityManager, "theater_rooms", "select name from theater_rooms where name = :name for update")
+                .setParameter("name", room)
+                .getResultList()
+                .isEmpty();
+    }
+
+    private static void add(NavigableMap<LocalDateTime, List<RoomSlot>> timeline, RoomSlot slot) {
+        timeline.computeIfAbsent(slot.getScreeningTime(), time -> new ArrayList<>()).add(slot);
+    }
+
+    private static LocalDateTime endOf(RoomSlot slot, int durationMinutes) {
+        return slot.getScreeningTime().plusMinutes(durationMinutes);
+    }
+
+    private static ScreeningConflictException conflict(String room, Long otherId, LocalDateTime otherTime) {
+        return new ScreeningConflictException("Room " + room + " is already booked by screening " + otherId
+                + " starting at " + otherTime);
+    }
+}
@@ -0,0 +1,231 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+// Programacion de sesiones en memoria: por cada sala, un arbol ordenado por hora de inicio (y id para desempatar).
+// Una ventana [from, to) de una sala se resuelve con un subMap en O(log n + resultados), sin ir a la base de datos.
+// Se carga entera al arrancar (antes de aceptar peticiones) y los servicios la mantienen al dia en cada alta,
+// modificacion o baja. Las lecturas no bloquean; las escrituras se serializan entre si.
+// Con la duracion de cada pelicula sabe tambien donde acaba cada sesion, para detectar solapes en una sala
+@Component
+public class ScreeningScheduleIndex implements SmartInitializingSingleton {
+
+    private static final Comparator<ScreeningOutDto> BY_TIME = Comparator
+            .comparing(ScreeningOutDto::getScreeningTime)
+            .thenComparing(ScreeningOutDto::getId);
+
+    private final Logger logger = LoggerFactory.getLogger(ScreeningScheduleIndex.class);
+
+    private final ScreeningRepository screeningRepository;
+    private final MovieRepository movieRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, NavigableMap<Slot, ScreeningOutDto>> rooms = new ConcurrentHashMap<>();
+    private final Map<Long, ScreeningOutDto> screenings = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> screeningsByMovie = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> movieDurations = new ConcurrentHashMap<>();
+    // Sube con cada cambio del indice. Junto con el id de esta instancia forma el ETag de la programacion
+    private final String instanceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private volatile long revision;
+    // Solo crece: es el limite de cuanto antes de una hora puede empezar una sesion que siga en curso
+    private volatile int maxDurationMinutes;
+
+    public ScreeningScheduleIndex(ScreeningRepository screeningRepository, MovieRepository movieRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.screeningRepository = screeningRepository;
+        this.movieRepository = movieRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            movieRepository.findAllDurations().forEach(movie -> setDuration(movie.getId(), movie.getDurationMinutes()));
+            try (Stream<ScreeningOutDto> all = screeningRepository.streamAllWithMovieTitle()) {
+                all.forEach(this::index);
+            }
+        });
+        logger.info("Screening schedule index loaded: {} screenings in {} rooms ({} ms)",
+                screenings.size(), rooms.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Sesiones que empiezan en [from, to), de la sala indicada (o de todas) y opcionalmente solo las (no) subtituladas,
+    // ordenadas por hora. from/to nulos no limitan por ese lado
+    public List<ScreeningOutDto> find(LocalDateTime from, LocalDateTime to, String room, Boolean subtitled) {
+        Collection<NavigableMap<Slot, ScreeningOutDto>> roomSchedules = room == null
+                ? rooms.values()
+                : Stream.ofNullable(rooms.get(room)).toList();
+        List<ScreeningOutDto> result = new ArrayList<>();
+        for (NavigableMap<Slot, ScreeningOutDto> schedule : roomSchedules) {
+            for (ScreeningOutDto screening : window(schedule, from, to).values()) {
+                if (subtitled == null || screening.isSubtitled() == subtitled) {
+                    result.add(screening);
+                }
+            }
+        }
+        if (roomSchedules.size() > 1) {
+            result.sort(BY_TIME);
+        }
+        return result;
+    }
+
+    // Sesiones de una pelicula que empiezan a partir de from, ordenadas por hora
+    public List<ScreeningOutDto> findByMovie(Long movieId, LocalDateTime from) {
+        return screeningsByMovie.getOrDefault(movieId, Set.of()).stream()
+                .map(screenings::get)
+                .filter(screening -> screening != null && !screening.getScreeningTime().isBefore(from))
+                .sorted(BY_TIME)
+                .toList();
+    }
+
+    // Identifica el estado actual de la programacion en esta instancia; cambia con cualquier alta, cambio o baja
+    public String revision() {
+        return instanceId + "-" + revision;
+    }
+
+    public Optional<ScreeningOutDto> get(Long screeningId) {
+        return Optional.ofNullable(screenings.get(screeningId));
+    }
+
+    // Primera sesion de la sala, distinta de excludeId, que se solapa con [start, start + durationMinutes)
+    public Optional<ScreeningOutDto> findOverlap(String room, LocalDateTime start, int durationMinutes, Long excludeId) {
+        NavigableMap<Slot, ScreeningOutDto> schedule = rooms.get(room);
+        if (schedule == null) {
+            return Optional.empty();
+        }
+        // Solo pueden solaparse las que empiezan antes del final y como mucho la pelicula mas larga antes del inicio
+        LocalDateTime earliest = start.minusMinutes(maxDurationMinutes);
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+        for (ScreeningOutDto other : window(schedule, earliest, end).values()) {
+            if (!other.getId().equals(excludeId) && endOf(other).isAfter(start)) {
+                return Optional.of(other);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void put(ScreeningOutDto screening, int durationMinutes) {
+        AfterCommit.run(() -> {
+            setDuration(screening.getMovieId(), durationMinutes);
+            index(screening);
+        });
+    }
+
+    public void remove(Long screeningId) {
+        AfterCommit.run(() -> unindex(screeningId));
+    }
+
+    // Al borrar una pelicula se borran en cascada sus sesiones
+    public void removeMovie(Long movieId) {
+        AfterCommit.run(() -> {
+            List.copyOf(screeningsByMovie.getOrDefault(movieId, Set.of())).forEach(this::unindex);
+            movieDurations.remove(movieId);
+        });
+    }
+
+    // Las sesiones guardan el titulo de la pelicula, hay que cambiarlo en todas. La duracion se guarda una vez
+    // por pelicula: al cambiarla se mueve el final de todas sus sesiones
+    public void updateMovie(Long movieId, String title, int durationMinutes) {
+        AfterCommit.run(() -> {
+            setDuration(movieId, durationMinutes);
+            List.copyOf(screeningsByMovie.getOrDefault(movieId, Set.of())).forEach(screeningId -> {
+                ScreeningOutDto screening = screenings.get(screeningId);
+                if (screening != null && !title.equals(screening.getMovieTitle())) {
+                    index(new ScreeningOutDto(screening.getId(), screening.getScreeningTime(), screening.getTheaterRoom(),
+                            screening.getTicketPrice(), screening.isSubtitled(), movieId, title));
+                }
+            });
+        });
+    }
+
+    private LocalDateTime endOf(ScreeningOutDto screening) {
+        return screening.getScreeningTime().plusMinutes(movieDurations.getOrDefault(screening.getMovieId(), 0));
+    }
+
+    private synchronized void setDuration(Long movieId, int durationMinutes) {
+        movieDurations.put(movieId, durationMinutes);
+        maxDurationMinutes = Math.max(maxDurationMinutes, durationMinutes);
+    }
+
+    private static NavigableMap<Slot, ScreeningOutDto> window(NavigableMap<Slot, ScreeningOutDto> schedule,
+                                                            LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null) {
+            return schedule.subMap(Slot.first(from), true, Slot.first(to), false);
+        }
+        if (from != null) {
+            return schedule.tailMap(Slot.first(from), true);
+        }
+        if (to != null) {
+            return schedule.headMap(Slot.first(to), false);
+        }
+        return schedule;
+    }
+
+    private synchronized void index(ScreeningOutDto screening) {
+        unindex(screening.getId());
+        rooms.computeIfAbsent(screening.getTheaterRoom(), room -> new ConcurrentSkipListMap<>())
+                .put(Slot.of(screening), screening);
+        screenings.put(screening.getId(), screening);
+        screeningsByMovie.computeIfAbsent(screening.getMovieId(), movieId -> ConcurrentHashMap.newKeySet())
+                .add(screening.getId());
+        revision++;
+    }
+
+    private synchronized void unindex(Long screeningId) {
+        ScreeningOutDto previous = screenings.remove(screeningId);
+        if (previous == null) {
+            return;
+        }
+        NavigableMap<Slot, ScreeningOutDto> schedule = rooms.get(previous.getTheaterRoom());
+        if (schedule != null) {
+            schedule.remove(Slot.of(previous));
+        }
+        Set<Long> movieScreenings = screeningsByMovie.get(previous.getMovieId());
+        if (movieScreenings != null) {
+            movieScreenings.remove(screeningId);
+        }
+        revision++;
+    }
+
+    private record Slot(LocalDateTime time, long id) implements Comparable<Slot> {
+
+        static Slot of(ScreeningOutDto screening) {
+            return new Slot(screening.getScreeningTime(), screening.getId());
+        }
+
+        // La clave mas baja posible para una hora: sirve de limite en las ventanas
+        static Slot first(LocalDateTime time) {
+            return new Slot(time, Long.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int byTime = time.compareTo(other.time);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+}
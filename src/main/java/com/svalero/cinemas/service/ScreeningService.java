@@ -2,42 +2,118 @@ package com.svalero.cinemas.service;
 
 import com.svalero.cinemas.domain.Movie;
 import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.CursorPage;
+import com.svalero.cinemas.domain.dto.ResourceValidator;
+import com.svalero.cinemas.domain.dto.RoomSlot;
 import com.svalero.cinemas.domain.dto.ScreeningInDto;
 import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningScheduleFilter;
+import com.svalero.cinemas.exception.InvalidScreeningQueryException;
 import com.svalero.cinemas.exception.MovieNotFoundException;
+import com.svalero.cinemas.exception.ScreeningConflictException;
 import com.svalero.cinemas.exception.ScreeningNotFoundException;
+import com.svalero.cinemas.mapper.ScreeningMapper;
 import com.svalero.cinemas.repository.MovieRepository;
 import com.svalero.cinemas.repository.ScreeningRepository;
-import org.modelmapper.ModelMapper;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Observed(name = "cinemas.service")
 @Service
 public class ScreeningService {
 
     private final ScreeningRepository screeningRepository;
     private final MovieRepository movieRepository;
-    private final ModelMapper modelMapper;
+    private final ScreeningMapper screeningMapper;
+    private final CatalogCacheService catalogCacheService;
+    private final ScreeningScheduleIndex scheduleIndex;
+    private final RoomScheduleGuard roomScheduleGuard;
+    private final NowShowingBoard nowShowingBoard;
+    private final ScreeningStatsRollup statsRollup;
 
-    public ScreeningService(ScreeningRepository screeningRepository, MovieRepository movieRepository, ModelMapper modelMapper) {
+    public ScreeningService(ScreeningRepository screeningRepository, MovieRepository movieRepository, ScreeningMapper screeningMapper,
+                            CatalogCacheService catalogCacheService, ScreeningScheduleIndex scheduleIndex,
+                            RoomScheduleGuard roomScheduleGuard, NowShowingBoard nowShowingBoard, ScreeningStatsRollup statsRollup) {
         this.screeningRepository = screeningRepository;
         this.movieRepository = movieRepository;
-        this.modelMapper = modelMapper;
+        this.screeningMapper = screeningMapper;
+        this.catalogCacheService = catalogCacheService;
+        this.scheduleIndex = scheduleIndex;
+        this.roomScheduleGuard = roomScheduleGuard;
+        this.nowShowingBoard = nowShowingBoard;
+        this.statsRollup = statsRollup;
     }
 
+    @Transactional(readOnly = true)
     public List<ScreeningOutDto> findAll() {
-        return ((List<Screening>) screeningRepository.findAll())
-                .stream()
-                .map(this::convertToOutDto)
-                .collect(Collectors.toList());
+        return screeningRepository.findAllWithMovieTitle();
     }
 
+    // Programacion por ventana de tiempo, sala y subtitulos: se resuelve en el indice en memoria
+    public List<ScreeningOutDto> findSchedule(ScreeningScheduleFilter filter) {
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().isBefore(filter.getTo())) {
+            throw new InvalidScreeningQueryException("'from' must be before 'to'");
+        }
+        return scheduleIndex.find(filter.getFrom(), filter.getTo(), filter.getRoom(), filter.getSubtitled());
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ScreeningOutDto> findPage(Long after, int limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        List<ScreeningOutDto> screenings = screeningRepository.findPageWithMovieTitle(after == null ? 0L : after, Limit.of(pageSize + 1));
+        return CursorPage.of(screenings, pageSize, ScreeningOutDto::getId);
+    }
+
+    // Recorre todas las sesiones sin acumularlas en memoria; al ser DTOs no quedan en el contexto de persistencia
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<ScreeningOutDto> consumer) {
+        try (Stream<ScreeningOutDto> screenings = screeningRepository.streamAllWithMovieTitle()) {
+            screenings.forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public ScreeningOutDto findById(Long id) {
-        Screening screening = screeningRepository.findById(id)
+        return screeningRepository.findWithMovieTitleById(id)
                 .orElseThrow(() -> new ScreeningNotFoundException("Screening with ID " + id + " not found"));
-        return convertToOutDto(screening);
+    }
+
+    // ETag y Last-Modified de GET /screenings/{id}. El titulo de la pelicula forma parte de la sesion, asi que
+    // cuenta tambien la version de la pelicula
+    @Transactional(readOnly = true)
+    public Optional<ResourceValidator> findValidator(Long id) {
+        return screeningRepository.findVersionById(id).map(screening -> new ResourceValidator(
+                ResourceValidator.eTagOf(ResourceValidator.micros(screening.getLastModified()), screening.getMovieVersion()),
+                ResourceValidator.latest(screening.getLastModified(), screening.getMovieLastModified())));
+    }
+
+    // ETag de GET /screenings con filtros: la revision del indice en memoria, de donde sale la respuesta
+    public ResourceValidator findScheduleValidator() {
+        return new ResourceValidator(ResourceValidator.eTagOf(scheduleIndex.revision()), null);
+    }
+
+    // ETag de GET /screenings sin filtros, que sale de la base de datos: una consulta agregada sobre las mismas
+    // tablas, asi que cambia tambien con lo que escriban otros nodos. Sin Last-Modified: borrar la ultima sesion
+    // modificada puede dejar la fecha igual o hacia atras
+    @Transactional(readOnly = true)
+    public ResourceValidator findListValidator() {
+        ScreeningRepository.ScreeningListVersion list = screeningRepository.findListVersion();
+        return new ResourceValidator(ResourceValidator.eTagOf(list.getScreeningCount(),
+                ResourceValidator.micros(list.getLastModified()), ResourceValidator.micros(list.getMovieLastModified())), null);
     }
 
     public ScreeningOutDto add(ScreeningInDto screeningInDto) throws ScreeningNotFoundException {
@@ -45,49 +121,136 @@ public class ScreeningService {
         Movie movie = movieRepository.findById(screeningInDto.getMovieId())
                 .orElseThrow(() -> new ScreeningNotFoundException("Movie not found"));
 
-        // 2. Crear manualmente la entidad Screening
-        Screening screening = new Screening();
-        screening.setId(null);
-        screening.setScreeningTime(screeningInDto.getScreeningTime());
-        screening.setTheaterRoom(screeningInDto.getTheaterRoom());
-        screening.setTicketPrice(screeningInDto.getTicketPrice());
-        screening.setSubtitled(screeningInDto.isSubtitled());
+        // 2. Crear la entidad Screening
+        Screening screening = screeningMapper.toEntity(screeningInDto);
         screening.setMovie(movie);
 
-        // 3. Guardar en BD
-        Screening savedScreening = screeningRepository.save(screening);
-
-        // 4. Crear DTO de salida manualmente
-        ScreeningOutDto outDto = new ScreeningOutDto();
-        outDto.setId(savedScreening.getId());
-        outDto.setScreeningTime(savedScreening.getScreeningTime());
-        outDto.setTheaterRoom(savedScreening.getTheaterRoom());
-        outDto.setTicketPrice(savedScreening.getTicketPrice());
-        outDto.setSubtitled(savedScreening.isSubtitled());
-        outDto.setMovieTitle(savedScreening.getMovie().getTitle());
+        // 3. Guardar en BD con la sala bloqueada, si no se solapa con otra sesion
+        return roomScheduleGuard.inRooms(List.of(screening.getTheaterRoom()), () -> {
+            roomScheduleGuard.checkFree(screening.getTheaterRoom(), screening.getScreeningTime(), movie.getDurationMinutes(), null);
+            Screening savedScreening = screeningRepository.save(screening);
+            statsRollup.refresh(List.of(savedScreening));
+            catalogCacheService.evictScreening(savedScreening.getId(), movie.getId());
 
-        return outDto;
+            // 4. Crear DTO de salida
+            ScreeningOutDto screeningOutDto = screeningMapper.toOutDto(savedScreening);
+            scheduleIndex.put(screeningOutDto, movie.getDurationMinutes());
+            nowShowingBoard.refreshMovies(List.of(movie.getId()));
+            return screeningOutDto;
+        });
     }
 
 
+    // Alta de varias sesiones en una sola transaccion con sus salas bloqueadas y los inserts en lotes JDBC
+    // (WriteCoalescer). Devuelve, en el mismo orden, la sesion guardada o la excepcion que habria lanzado add() con
+    // esa sesion sola: las que se solapan con otra (guardada o anterior en la lista) no se guardan
+    public List<CompletableFuture<ScreeningOutDto>> addAll(List<ScreeningInDto> screeningInDtos) {
+        Map<Long, Movie> movies = new HashMap<>();
+        movieRepository.findAllById(screeningInDtos.stream().map(ScreeningInDto::getMovieId).collect(Collectors.toSet()))
+                .forEach(movie -> movies.put(movie.getId(), movie));
+
+        List<CompletableFuture<ScreeningOutDto>> results = new ArrayList<>(screeningInDtos.size());
+        List<Integer> positions = new ArrayList<>();
+        List<Screening> screenings = new ArrayList<>();
+        for (ScreeningInDto screeningInDto : screeningInDtos) {
+            Movie movie = movies.get(screeningInDto.getMovieId());
+            if (movie == null) {
+                results.add(CompletableFuture.failedFuture(new ScreeningNotFoundException("Movie not found")));
+                continue;
+            }
+            Screening screening = screeningMapper.toEntity(screeningInDto);
+            screening.setMovie(movie);
+            positions.add(results.size());
+            screenings.add(screening);
+            results.add(null);
+        }
+        if (screenings.isEmpty()) {
+            return results;
+        }
+
+        Set<String> rooms = screenings.stream().map(Screening::getTheaterRoom).collect(Collectors.toSet());
+        roomScheduleGuard.inRooms(rooms, () -> {
+            List<String> conflicts = roomScheduleGuard.findConflicts(screenings.stream()
+                    .map(screening -> new RoomSlot(null, screening.getMovie().getId(), screening.getTheaterRoom(),
+                            screening.getScreeningTime(), screening.getMovie().getDurationMinutes()))
+                    .toList());
+            List<Screening> accepted = new ArrayList<>(screenings.size());
+            for (int i = 0; i < screenings.size(); i++) {
+                if (conflicts.get(i) == null) {
+                    accepted.add(screenings.get(i));
+                } else {
+                    results.set(positions.get(i), CompletableFuture.failedFuture(new ScreeningConflictException(conflicts.get(i))));
+                }
+            }
+            screeningRepository.saveAll(accepted);
+            statsRollup.refresh(accepted);
+            Set<Long> movieIds = accepted.stream().map(screening -> screening.getMovie().getId()).collect(Collectors.toSet());
+            catalogCacheService.evictScreening(null, movieIds.toArray(Long[]::new));
+            for (int i = 0; i < screenings.size(); i++) {
+                if (conflicts.get(i) == null) {
+                    ScreeningOutDto screeningOutDto = screeningMapper.toOutDto(screenings.get(i));
+                    scheduleIndex.put(screeningOutDto, screenings.get(i).getMovie().getDurationMinutes());
+                    results.set(positions.get(i), CompletableFuture.completedFuture(screeningOutDto));
+                }
+            }
+            nowShowingBoard.refreshMovies(movieIds);
+            return accepted.size();
+        });
+        return results;
+    }
+
     public ScreeningOutDto modify(Long id, ScreeningInDto screeningInDto) {
-        screeningRepository.findById(id)
+        Screening existingScreening = screeningRepository.findById(id)
                 .orElseThrow(() -> new ScreeningNotFoundException("Screening with ID " + id + " not found"));
+        Long previousMovieId = existingScreening.getMovie().getId();
+        String previousRoom = existingScreening.getTheaterRoom();
+        LocalDateTime previousTime = existingScreening.getScreeningTime();
 
         Screening screening = convertToEntity(screeningInDto);
         screening.setId(id); // preserve ID for update
-        Screening updatedScreening = screeningRepository.save(screening);
-        return convertToOutDto(updatedScreening);
+        int durationMinutes = screening.getMovie().getDurationMinutes();
+        // El solape solo se comprueba en la sala de destino (al salir de una sala no se puede provocar ninguno); la de
+        // origen se bloquea tambien porque cambia su resumen diario
+        return roomScheduleGuard.inRooms(List.of(screening.getTheaterRoom(), previousRoom), () -> {
+            roomScheduleGuard.checkFree(screening.getTheaterRoom(), screening.getScreeningTime(), durationMinutes, id);
+            Screening updatedScreening = screeningRepository.save(screening);
+            statsRollup.refresh(previousRoom, previousTime);
+            statsRollup.refresh(List.of(updatedScreening));
+            if (!previousMovieId.equals(screeningInDto.getMovieId())) {
+                touchMovie(previousMovieId);
+            }
+            // si cambia de pelicula hay que invalidar la lista de sesiones de las dos
+            catalogCacheService.evictScreening(id, previousMovieId, screeningInDto.getMovieId());
+            ScreeningOutDto screeningOutDto = convertToOutDto(updatedScreening);
+            scheduleIndex.put(screeningOutDto, durationMinutes);
+            nowShowingBoard.refreshMovies(List.of(previousMovieId, screeningInDto.getMovieId()));
+            return screeningOutDto;
+        });
     }
 
+    @Transactional
     public void delete(Long id) {
-        screeningRepository.findById(id)
+        Screening screening = screeningRepository.findById(id)
                 .orElseThrow(() -> new ScreeningNotFoundException("Screening with ID " + id + " not found"));
-        screeningRepository.deleteById(id);
+        // Con la sala bloqueada por el resumen diario, que se recalcula sin la sesion
+        roomScheduleGuard.inRooms(List.of(screening.getTheaterRoom()), () -> {
+            screeningRepository.deleteById(id);
+            statsRollup.refresh(screening.getTheaterRoom(), screening.getScreeningTime());
+            return null;
+        });
+        touchMovie(screening.getMovie().getId());
+        catalogCacheService.evictScreening(id, screening.getMovie().getId());
+        scheduleIndex.remove(id);
+        nowShowingBoard.refreshMovies(List.of(screening.getMovie().getId()));
+    }
+
+    // La pelicula pierde una sesion: cambia su Last-Modified sin subir la version, para no invalidar los If-Match
+    private void touchMovie(Long movieId) {
+        movieRepository.findById(movieId).ifPresent(movie -> movie.setLastModified(LocalDateTime.now()));
     }
 
     private Screening convertToEntity(ScreeningInDto dto) {
-        Screening screening = modelMapper.map(dto, Screening.class);
+        Screening screening = screeningMapper.toEntity(dto);
         Movie movie = movieRepository.findById(dto.getMovieId())
                 .orElseThrow(() -> new MovieNotFoundException("Movie with ID " + dto.getMovieId() + " not found"));
         screening.setMovie(movie);
@@ -95,8 +258,6 @@ public class ScreeningService {
     }
 
     private ScreeningOutDto convertToOutDto(Screening screening) {
-        ScreeningOutDto dto = modelMapper.map(screening, ScreeningOutDto.class);
-        dto.setMovieTitle(screening.getMovie().getTitle());
-        return dto;
+        return screeningMapper.toOutDto(screening);
     }
 }
@@ -0,0 +1,61 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Screening;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// Mantiene screening_daily_stats (GET /stats/...). En cada alta, cambio o baja de una sesion se recalcula el dia de
+// su sala desde screenings, por el indice de sala y hora: son pocas filas y el resultado no depende de lo que hubiera
+// antes. Hay que llamarlo dentro de la transaccion del cambio y con la sala bloqueada (RoomScheduleGuard.inRooms):
+// asi dos nodos nunca recalculan a la vez el mismo dia de una sala
+@Component
+public class ScreeningStatsRollup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void refresh(Collection<Screening> screenings) {
+        Set<RoomDay> days = new HashSet<>();
+        screenings.forEach(screening -> days.add(new RoomDay(screening.getTheaterRoom(), screening.getScreeningTime().toLocalDate())));
+        refreshDays(days);
+    }
+
+    public void refresh(String room, LocalDateTime screeningTime) {
+        refreshDays(Set.of(new RoomDay(room, screeningTime.toLocalDate())));
+    }
+
+    private void refreshDays(Set<RoomDay> days) {
+        // Las sesiones pendientes de la sesion de Hibernate tienen que estar ya en la tabla
+        entityManager.flush();
+        for (RoomDay day : days) {
+            statement("delete from screening_daily_stats where theater_room = :room and stat_day = :day")
+                    .setParameter("room", day.room())
+                    .setParameter("day", day.day())
+                    .executeUpdate();
+            statement("insert into screening_daily_stats (stat_day, theater_room, movie_id, screening_count, price_total) "
+                    + "select :day, s.theater_room, s.movie_id, count(*), sum(s.ticket_price) from screenings s "
+                    + "where s.theater_room = :room and s.screening_time >= :start and s.screening_time < :end "
+                    + "group by s.theater_room, s.movie_id")
+                    .setParameter("day", day.day())
+                    .setParameter("room", day.room())
+                    .setParameter("start", day.day().atStartOfDay())
+                    .setParameter("end", day.day().plusDays(1).atStartOfDay())
+                    .executeUpdate();
+        }
+    }
+
+    private NativeQuery<?> statement(String sql) {
+        return NativeStatements.on(entityManager, "screening_daily_stats", sql);
+    }
+
+    private record RoomDay(String room, LocalDate day) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.ScreeningStatsDto;
+import com.svalero.cinemas.exception.InvalidStatsQueryException;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Estadisticas de precios y sesiones para los cuadros de mando. Todo se agrupa en la base de datos sobre el resumen
+// diario que mantiene ScreeningStatsRollup: el coste depende de los dias, salas y peliculas consultados, no del numero
+// de sesiones guardadas. Sin from/to se toma todo el historico
+@Observed(name = "cinemas.service")
+@Service
+public class ScreeningStatsService {
+
+    // Limites de una columna DATE en MariaDB
+    private static final LocalDate FIRST_DAY = LocalDate.of(1000, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 31);
+
+    private final ScreeningRepository screeningRepository;
+    private final MovieRepository movieRepository;
+
+    public ScreeningStatsService(ScreeningRepository screeningRepository, MovieRepository movieRepository) {
+        this.screeningRepository = screeningRepository;
+        this.movieRepository = movieRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScreeningStatsDto> findByMovie(LocalDate from, LocalDate to) {
+        return screeningRepository.findPriceStatsByMovie(fromOrFirst(from, to), toOrLast(to)).stream()
+                .map(stats -> new ScreeningStatsDto(stats.getMovieId(), stats.getTitle(), null, null, null,
+                        stats.getScreeningCount(), stats.getAveragePrice()))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScreeningStatsDto> findByRoom(LocalDate from, LocalDate to) {
+        return screeningRepository.findPriceStatsByRoom(fromOrFirst(from, to), toOrLast(to)).stream()
+                .map(stats -> new ScreeningStatsDto(null, null, stats.getTheaterRoom(), null, null,
+                        stats.getScreeningCount(), stats.getAveragePrice()))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScreeningStatsDto> findByDay(LocalDate from, LocalDate to) {
+        return screeningRepository.findPriceStatsByDay(fromOrFirst(from, to), toOrLast(to)).stream()
+                .map(stats -> new ScreeningStatsDto(null, null, null, stats.getStatDay(), null,
+                        stats.getScreeningCount(), stats.getAveragePrice()))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScreeningStatsDto> findByGenre(LocalDate from, LocalDate to) {
+        return movieRepository.findPriceStatsByGenre(fromOrFirst(from, to), toOrLast(to)).stream()
+                .map(stats -> new ScreeningStatsDto(null, null, null, null, stats.getGenre(),
+                        stats.getScreeningCount(), stats.getAveragePrice()))
+                .toList();
+    }
+
+    private static LocalDate fromOrFirst(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidStatsQueryException("'from' must not be after 'to'");
+        }
+        return from == null ? FIRST_DAY : from;
+    }
+
+    private static LocalDate toOrLast(LocalDate to) {
+        return to == null ? LAST_DAY : to;
+    }
+}
@@ -0,0 +1,121 @@
+package com.svalero.cinemas.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Estado de las butacas de una sesion: un bit por butaca (1 = retenida o vendida) en un AtomicLongArray.
+// Coger o soltar una butaca es un compareAndSet sobre su palabra de 64 bits, sin locks: miles de compradores
+// sobre la misma sesion solo reintentan cuando dos tocan la misma palabra a la vez. Una sala de 200 butacas ocupa 32 bytes
+public final class SeatInventory {
+
+    private final int seatRows;
+    private final int seatsPerRow;
+    private final int capacity;
+    private final AtomicLongArray words;
+    private final AtomicInteger available;
+
+    public SeatInventory(int seatRows, int seatsPerRow) {
+        this.seatRows = seatRows;
+        this.seatsPerRow = seatsPerRow;
+        this.capacity = seatRows * seatsPerRow;
+        this.words = new AtomicLongArray((capacity + 63) / 64);
+        this.available = new AtomicInteger(capacity);
+    }
+
+    public int getSeatRows() {
+        return seatRows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int available() {
+        return available.get();
+    }
+
+    public boolean isTaken(int seat) {
+        return (words.get(seat >>> 6) & (1L << (seat & 63))) != 0;
+    }
+
+    // Todas o ninguna: si alguna ya estaba cogida se sueltan las que se habian marcado
+    public boolean claim(int[] seats) {
+        for (int i = 0; i < seats.length; i++) {
+            if (!claimOne(seats[i])) {
+                release(Arrays.copyOf(seats, i));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Las primeras quantity butacas libres recorriendo el plano por filas, o null si no quedan tantas
+    public int[] claimAny(int quantity) {
+        if (available.get() < quantity) {
+            return null;
+        }
+        int[] seats = new int[quantity];
+        int found = 0;
+        for (int index = 0; index < words.length() && found < quantity; index++) {
+            long word = words.get(index);
+            long free;
+            while (found < quantity && (free = ~word & validBits(index)) != 0) {
+                long bit = Long.lowestOneBit(free);
+                if (words.compareAndSet(index, word, word | bit)) {
+                    available.decrementAndGet();
+                    seats[found++] = index * 64 + Long.numberOfTrailingZeros(bit);
+                    word |= bit;
+                } else {
+                    word = words.get(index);
+                }
+            }
+        }
+        if (found < quantity) {
+            release(Arrays.copyOf(seats, found));
+            return null;
+        }
+        return seats;
+    }
+
+    public void release(int[] seats) {
+        for (int seat : seats) {
+            int index = seat >>> 6;
+            long bit = 1L << (seat & 63);
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & bit) == 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word & ~bit));
+            if ((word & bit) != 0) {
+                available.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean claimOne(int seat) {
+        int index = seat >>> 6;
+        long bit = 1L << (seat & 63);
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & bit) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, word, word | bit));
+        available.decrementAndGet();
+        return true;
+    }
+
+    // En la ultima palabra solo existen las butacas hasta capacity
+    private long validBits(int index) {
+        int seatsInWord = Math.min(64, capacity - index * 64);
+        return seatsInWord == 64 ? -1L : (1L << seatsInWord) - 1;
+    }
+}
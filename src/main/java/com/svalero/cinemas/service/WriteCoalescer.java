@@ -0,0 +1,188 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// Agrupa las altas sueltas (POST /movies, POST /screenings) que llegan a la vez: la primera espera window a que se
+// sumen las demas y todas se guardan en una transaccion con los inserts en lotes JDBC, hasta max-batch por lote.
+// Cada peticion sigue esperando su propio resultado o su propia excepcion, igual que con create() o add(). Si la base
+// de datos rechaza el lote se repite una a una, cada una en su transaccion. Un hilo por tipo escribe los lotes
+@Component
+public class WriteCoalescer implements DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(WriteCoalescer.class);
+
+    private final Batcher<MovieInDto, Movie> movies;
+    private final Batcher<ScreeningInDto, ScreeningOutDto> screenings;
+
+    public WriteCoalescer(MovieService movieService, ScreeningService screeningService, MeterRegistry meterRegistry,
+                          @Value("${cinemas.writes.coalesce.enabled:false}") boolean enabled,
+                          @Value("${cinemas.writes.coalesce.window:2ms}") Duration window,
+                          @Value("${cinemas.writes.coalesce.max-batch:100}") int maxBatch) {
+        this.movies = new Batcher<>("movies", enabled, window, maxBatch, meterRegistry,
+                batch -> movieService.createAll(batch).stream().map(CompletableFuture::completedFuture).toList(),
+                movieService::create);
+        this.screenings = new Batcher<>("screenings", enabled, window, maxBatch, meterRegistry,
+                screeningService::addAll, screeningService::add);
+    }
+
+    public Movie createMovie(MovieInDto movieInDto) {
+        return movies.submit(movieInDto);
+    }
+
+    public ScreeningOutDto addScreening(ScreeningInDto screeningInDto) {
+        return screenings.submit(screeningInDto);
+    }
+
+    // Se escriben las altas que ya estaban esperando y despues se para
+    @Override
+    public void destroy() throws InterruptedException {
+        movies.shutdown();
+        screenings.shutdown();
+    }
+
+    private final class Batcher<I, O> {
+
+        private final String type;
+        private final boolean enabled;
+        private final long windowNanos;
+        private final int maxBatch;
+        private final Function<List<I>, List<CompletableFuture<O>>> writeBatch;
+        private final Function<I, O> writeOne;
+        private final DistributionSummary batchSizes;
+        private final ScheduledExecutorService executor;
+        private final Queue<PendingWrite<I, O>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+        private Batcher(String type, boolean enabled, Duration window, int maxBatch, MeterRegistry meterRegistry,
+                        Function<List<I>, List<CompletableFuture<O>>> writeBatch, Function<I, O> writeOne) {
+            this.type = type;
+            this.enabled = enabled;
+            this.windowNanos = window.toNanos();
+            this.maxBatch = maxBatch;
+            this.writeBatch = writeBatch;
+            this.writeOne = writeOne;
+            this.batchSizes = DistributionSummary.builder("cinemas.writes.batch.size")
+                    .description("Inserts written together by the write coalescer")
+                    .tag("type", type)
+                    .register(meterRegistry);
+            this.executor = enabled
+                    ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("write-coalescer-" + type).daemon().factory())
+                    : null;
+        }
+
+        O submit(I input) {
+            if (!enabled) {
+                return writeOne.apply(input);
+            }
+            CompletableFuture<O> result = new CompletableFuture<>();
+            pending.add(new PendingWrite<>(input, result));
+            if (flushScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // La aplicacion se esta parando: se escribe desde este hilo
+                    flush();
+                }
+            }
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        // Lo que llegue mientras se escribe un lote va en el siguiente, sin volver a esperar la ventana
+        private void flush() {
+            flushScheduled.set(false);
+            List<PendingWrite<I, O>> batch = drain();
+            while (!batch.isEmpty()) {
+                write(batch);
+                batch = drain();
+            }
+        }
+
+        private List<PendingWrite<I, O>> drain() {
+            List<PendingWrite<I, O>> batch = new ArrayList<>(Math.min(maxBatch, pending.size()));
+            PendingWrite<I, O> write;
+            while (batch.size() < maxBatch && (write = pending.poll()) != null) {
+                batch.add(write);
+            }
+            return batch;
+        }
+
+        private void write(List<PendingWrite<I, O>> batch) {
+            batchSizes.record(batch.size());
+            try {
+                List<CompletableFuture<O>> results = writeBatch.apply(batch.stream().map(PendingWrite::input).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    CompletableFuture<O> result = batch.get(i).result();
+                    results.get(i).whenComplete((value, error) -> {
+                        if (error == null) {
+                            result.complete(value);
+                        } else {
+                            result.completeExceptionally(error);
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                if (batch.size() == 1) {
+                    batch.get(0).result().completeExceptionally(e);
+                    return;
+                }
+                logger.warn("Coalesced {} batch rejected, retrying one by one: {}", type, e.getMessage());
+                batch.forEach(this::writeAlone);
+            } catch (Error e) {
+                batch.forEach(write -> write.result().completeExceptionally(e));
+                throw e;
+            }
+        }
+
+        private void writeAlone(PendingWrite<I, O> write) {
+            try {
+                write.result().complete(writeOne.apply(write.input()));
+            } catch (RuntimeException e) {
+                write.result().completeExceptionally(e);
+            }
+        }
+
+        private void shutdown() throws InterruptedException {
+            if (executor != null) {
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private record PendingWrite<I, O>(I input, CompletableFuture<O> result) {
+    }
+}
@@ -0,0 +1,31 @@
+-- Esquema inicial (peliculas y sesiones). Compatible con H2 y MariaDB.
+-- Con "if not exists" tambien sirve para las bases de datos creadas antes por Hibernate (ddl-auto=update),
+-- que Flyway marca con la version 0 la primera vez
+
+create sequence if not exists movies_seq start with 1 increment by 50;
+create sequence if not exists screenings_seq start with 1 increment by 50;
+
+create table if not exists movies (
+    id                bigint       not null,
+    title             varchar(255) not null,
+    genre             varchar(255) not null,
+    duration_minutes  integer      not null,
+    release_date      date,
+    currently_showing boolean      not null,
+    version           bigint       default 0 not null,
+    primary key (id)
+);
+
+-- Las tablas creadas antes de tener bloqueo optimista no tienen la columna
+alter table movies add column if not exists version bigint default 0 not null;
+
+create table if not exists screenings (
+    id             bigint           not null,
+    screening_time datetime(6)      not null,
+    theater_room   varchar(255)     not null,
+    ticket_price   double precision not null,
+    subtitled      boolean          not null,
+    movie_id       bigint           not null,
+    primary key (id),
+    constraint fk_screenings_movie foreign key (movie_id) references movies (id)
+);
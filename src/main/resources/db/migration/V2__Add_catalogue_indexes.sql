@@ -0,0 +1,22 @@
+-- Indices para los filtros de MovieRepository / MovieSpecifications y ScreeningRepository.
+-- QueryPlanChecker comprueba con EXPLAIN que ninguna de esas consultas recorre la tabla completa
+
+-- GET /movies?title=, /movies/title/{title}
+create index if not exists ix_movies_title on movies (title);
+-- GET /movies?genre=, ordenado por fecha de estreno
+create index if not exists ix_movies_genre_release_date on movies (genre, release_date);
+-- GET /movies?releasedFrom=&releasedTo=, /movies/release-date/{date}
+create index if not exists ix_movies_release_date on movies (release_date);
+-- GET /movies?minDuration=&maxDuration=, ?durationMinutes=
+create index if not exists ix_movies_duration_minutes on movies (duration_minutes);
+-- GET /movies?currentlyShowing=, /movies/currentlyShowing/{value}
+create index if not exists ix_movies_currently_showing_title on movies (currently_showing, title);
+
+-- Sesiones de una pelicula (coleccion Movie.screenings y la clave ajena) en orden de hora
+create index if not exists ix_screenings_movie_time on screenings (movie_id, screening_time);
+-- Programacion de una sala
+create index if not exists ix_screenings_room_time on screenings (theater_room, screening_time);
+-- Proximas sesiones
+create index if not exists ix_screenings_time on screenings (screening_time);
+-- Sesiones subtituladas
+create index if not exists ix_screenings_subtitled_time on screenings (subtitled, screening_time);
@@ -0,0 +1,12 @@
+-- Una fila por sala. Antes de dar de alta o mover una sesion se bloquea la fila de su sala (select ... for update)
+-- y se comprueba el solape dentro de esa misma transaccion: con varios nodos contra la misma base de datos,
+-- dos altas en la misma sala quedan serializadas y no pueden guardar sesiones solapadas
+create table if not exists theater_rooms (
+    name varchar(255) not null,
+    primary key (name)
+);
+
+insert into theater_rooms (name)
+select distinct s.theater_room
+from screenings s
+where not exists (select 1 from theater_rooms r where r.name = s.theater_room);
@@ -0,0 +1,18 @@
+-- Plano de butacas de cada sala: filas x butacas por fila. Las salas que ya existen reciben el plano por defecto
+alter table theater_rooms add column if not exists seat_rows integer default 10 not null;
+alter table theater_rooms add column if not exists seats_per_row integer default 20 not null;
+
+create sequence if not exists reserved_seats_seq start with 1 increment by 50;
+
+-- Butacas vendidas. Las retenciones viven solo en memoria; las confirmadas se escriben aqui por lotes.
+-- La clave unica es la ultima defensa contra vender dos veces la misma butaca
+create table if not exists reserved_seats (
+    id             bigint      not null,
+    screening_id   bigint      not null,
+    seat_index     integer     not null,
+    reservation_id varchar(36) not null,
+    reserved_at    datetime(6) not null,
+    primary key (id),
+    constraint uk_reserved_seats_screening_seat unique (screening_id, seat_index),
+    constraint fk_reserved_seats_screening foreign key (screening_id) references screenings (id) on delete cascade
+);
@@ -0,0 +1,4 @@
+-- Fecha del ultimo cambio de peliculas y sesiones, para los ETag y Last-Modified de las lecturas.
+-- Las filas que ya existen toman la fecha de la migracion
+alter table movies add column if not exists last_modified datetime(6) default localtimestamp not null;
+alter table screenings add column if not exists last_modified datetime(6) default localtimestamp not null;
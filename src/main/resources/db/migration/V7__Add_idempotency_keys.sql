@@ -0,0 +1,13 @@
+-- Respuestas de las altas con cabecera Idempotency-Key, para repetirlas si el cliente reintenta. Solo se usa con
+-- cinemas.idempotency.persistent=true: asi sobreviven a un reinicio y las ven todos los nodos
+create table if not exists idempotency_keys (
+    scope           varchar(64)  not null,
+    idempotency_key varchar(255) not null,
+    fingerprint     varchar(64)  not null,
+    status          integer      not null,
+    body            text         not null,
+    created_at      datetime(6)  not null,
+    primary key (scope, idempotency_key)
+);
+
+create index if not exists idx_idempotency_keys_created_at on idempotency_keys (created_at);
@@ -0,0 +1,22 @@
+-- Resumen diario de las sesiones para GET /stats/...: una fila por dia, sala y pelicula con el numero de sesiones
+-- y la suma de sus precios. Lo mantiene ScreeningStatsRollup en cada alta, cambio o baja de una sesion (recalcula el
+-- dia de la sala afectada); al borrar una pelicula se van sus filas. El genero sale de movies al consultar
+create table if not exists screening_daily_stats (
+    stat_day        date             not null,
+    theater_room    varchar(255)     not null,
+    movie_id        bigint           not null,
+    screening_count bigint           not null,
+    price_total     double precision not null,
+    primary key (stat_day, theater_room, movie_id),
+    constraint fk_screening_daily_stats_movie foreign key (movie_id) references movies (id) on delete cascade
+);
+
+create index if not exists ix_screening_daily_stats_movie on screening_daily_stats (movie_id, stat_day);
+create index if not exists ix_screening_daily_stats_room on screening_daily_stats (theater_room, stat_day);
+
+-- Las sesiones que ya existen
+insert into screening_daily_stats (stat_day, theater_room, movie_id, screening_count, price_total)
+select cast(s.screening_time as date), s.theater_room, s.movie_id, count(*), sum(s.ticket_price)
+from screenings s
+where not exists (select 1 from screening_daily_stats d)
+group by cast(s.screening_time as date), s.theater_room, s.movie_id;
@@ -0,0 +1,15 @@
+-- Butacas confirmadas que ReservedSeatWriter no pudo guardar en reserved_seats. La venta ya se dio por hecha al
+-- cliente, asi que no se pueden perder: se reintentan cada reconcile-interval y las que chocan con otra venta de
+-- la misma butaca se quedan aqui, con el ultimo error, para resolverlas a mano
+create table if not exists failed_seat_writes (
+    screening_id   bigint        not null,
+    seat_index     integer       not null,
+    reservation_id varchar(36)   not null,
+    reserved_at    datetime(6)   not null,
+    failed_at      datetime(6)   not null,
+    error          varchar(1000) not null,
+    primary key (reservation_id, seat_index)
+);
+
+-- Al cargar las butacas de una sesion tambien cuentan como vendidas
+create index if not exists ix_failed_seat_writes_screening on failed_seat_writes (screening_id);
@@ -0,0 +1,136 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.service.MovieService;
+import com.svalero.cinemas.service.ScreeningService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Sin @Transactional: cada escritura se confirma, como entre dos peticiones reales
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConditionalRequestTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long movieId;
+    private Long screeningId;
+
+    @BeforeEach
+    void createScreening() {
+        movieId = movieService.create(new MovieInDto(null, "Conditional movie", "Drama", 100, LocalDate.of(2040, 1, 1), true)).getId();
+        screeningId = screeningService.add(new ScreeningInDto(LocalDateTime.of(2042, 6, 1, 20, 0), "Conditional room", 8.0,
+                false, movieId)).getId();
+    }
+
+    @AfterEach
+    void deleteMovie() {
+        movieService.delete(movieId);
+    }
+
+    @Test
+    void movieDetailAnswers304UntilTheMovieChanges() throws Exception {
+        MvcResult first = mockMvc.perform(get("/movies/{id}", movieId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get("/movies/{id}", movieId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate"))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/movies/{id}", movieId).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/movies/{id}", movieId).header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 01 Jan 2024 00:00:00 GMT"))
+                .andExpect(status().isOk());
+
+        movieService.updatePartial(movieId, Map.of("title", "Conditional movie renamed"), null);
+
+        String changed = mockMvc.perform(get("/movies/{id}", movieId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, changed);
+    }
+
+    // El titulo de la pelicula forma parte de la sesion: cambiarlo cambia tambien el ETag de la sesion
+    @Test
+    void screeningDetailAnswers304UntilItsMovieChanges() throws Exception {
+        MvcResult first = mockMvc.perform(get("/screenings/{id}", screeningId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=30, must-revalidate"))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/screenings/{id}", screeningId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/screenings/{id}", screeningId)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+
+        movieService.updatePartial(movieId, Map.of("title", "Conditional movie retitled"), null);
+
+        mockMvc.perform(get("/screenings/{id}", screeningId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Conditional movie retitled")));
+    }
+
+    // La lista sin filtros sale de la base de datos y su ETag tambien: cambia aunque el cambio no pase por este nodo
+    @Test
+    void screeningListETagFollowsTheDatabase() throws Exception {
+        String eTag = mockMvc.perform(get("/screenings"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=10, must-revalidate"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/screenings").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        screeningService.add(new ScreeningInDto(LocalDateTime.of(2042, 6, 2, 20, 0), "Conditional room", 8.0, false, movieId));
+        String afterAdd = mockMvc.perform(get("/screenings").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, afterAdd);
+
+        // Como si lo hubiera cambiado otro nodo: el indice en memoria de este no se entera
+        jdbcTemplate.update("update screenings set ticket_price = 9.5, last_modified = ? where id = ?",
+                LocalDateTime.now().plusSeconds(1), screeningId);
+        mockMvc.perform(get("/screenings").header(HttpHeaders.IF_NONE_MATCH, afterAdd))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,151 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.service.ChangeFeed;
+import com.svalero.cinemas.service.MovieService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// PATCH /movies/{id} cargando la pelicula (por defecto); TargetedMoviePatchTests repite los mismos tests con el
+// UPDATE directo. Sin @Transactional: cada PATCH se confirma como una peticion real
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MoviePatchTests {
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected MovieService movieService;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    protected Long movieId;
+
+    @BeforeEach
+    void createMovie() {
+        movieId = movieService.create(new MovieInDto(null, "Patch movie", "Drama", 100, LocalDate.of(2040, 1, 1), true)).getId();
+    }
+
+    @AfterEach
+    void deleteMovie() {
+        movieService.delete(movieId);
+    }
+
+    // Solo cambian los campos recibidos, convertidos a su tipo, y se publica un unico cambio
+    @Test
+    void updatesOnlyTheFieldsReceived() throws Exception {
+        long offset = changeFeed.lastOffset();
+
+        mockMvc.perform(patchMovie("{\"title\":\"Patch movie renamed\",\"releaseDate\":\"2041-05-01\",\"durationMinutes\":\"110\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Patch movie renamed"))
+                .andExpect(jsonPath("$.releaseDate").value("2041-05-01"))
+                .andExpect(jsonPath("$.durationMinutes").value(110));
+
+        mockMvc.perform(get("/movies/{id}", movieId))
+                .andExpect(jsonPath("$.title").value("Patch movie renamed"))
+                .andExpect(jsonPath("$.genre").value("Drama"))
+                .andExpect(jsonPath("$.durationMinutes").value(110))
+                .andExpect(jsonPath("$.currentlyShowing").value(true));
+        assertEquals(offset + 1, changeFeed.lastOffset());
+    }
+
+    // El ETag del PATCH es el mismo que daria GET y sirve como If-Match para el siguiente
+    @Test
+    void returnsTheETagOfTheUpdatedMovie() throws Exception {
+        String before = eTag();
+        String patched = mockMvc.perform(patchMovie("{\"genre\":\"Comedy\"}").header(HttpHeaders.IF_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotEquals(before, patched);
+        assertEquals(eTag(), patched);
+        mockMvc.perform(get("/movies/{id}", movieId).header(HttpHeaders.IF_NONE_MATCH, patched))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(patchMovie("{\"genre\":\"Thriller\"}").header(HttpHeaders.IF_MATCH, patched))
+                .andExpect(status().isOk());
+    }
+
+    // If-Match con una version anterior: 409 y la pelicula no cambia; tambien vale la version sola
+    @Test
+    void rejectsAStaleIfMatch() throws Exception {
+        String stale = eTag();
+        mockMvc.perform(patchMovie("{\"genre\":\"Comedy\"}").header(HttpHeaders.IF_MATCH, stale))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patchMovie("{\"genre\":\"Horror\"}").header(HttpHeaders.IF_MATCH, stale))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value(409));
+        mockMvc.perform(patchMovie("{\"genre\":\"Horror\"}").header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patchMovie("{\"genre\":\"Horror\"}").header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patchMovie("{\"genre\":\"Horror\"}").header(HttpHeaders.IF_MATCH, "not-a-version"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid If-Match header: not-a-version"));
+        assertEquals("Horror", movieService.findDetail(movieId).getGenre());
+    }
+
+    // Un valor que no se puede convertir o no es valido hace fallar todo el PATCH sin tocar nada
+    @Test
+    void rejectsInvalidValuesWithoutChangingTheMovie() throws Exception {
+        String before = eTag();
+        mockMvc.perform(patchMovie("{\"title\":\"Never stored\",\"durationMinutes\":\"long\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("durationMinutes: cannot convert long to int"));
+        mockMvc.perform(patchMovie("{\"title\":\"Never stored\",\"durationMinutes\":0}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("durationMinutes: Duration must be at least 1 minute"));
+        mockMvc.perform(patchMovie("{\"title\":\"Never stored\",\"director\":\"Someone\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", startsWith("Cannot update movie field: director")));
+        mockMvc.perform(patchMovie("{}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(before, eTag());
+        assertEquals("Patch movie", movieService.findDetail(movieId).getTitle());
+    }
+
+    @Test
+    void answers404ForAMissingMovie() throws Exception {
+        mockMvc.perform(patch("/movies/{id}", 999999).contentType(MediaType.APPLICATION_JSON).content("{\"genre\":\"Comedy\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/movies/{id}", 999999).contentType(MediaType.APPLICATION_JSON).content("{\"genre\":\"Comedy\"}")
+                        .header(HttpHeaders.IF_MATCH, "\"3\""))
+                .andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletRequestBuilder patchMovie(String body) {
+        return patch("/movies/{id}", movieId).contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    private String eTag() throws Exception {
+        return mockMvc.perform(get("/movies/{id}", movieId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,97 @@
+package com.svalero.cinemas.controller;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.service.MovieService;
+import com.svalero.cinemas.service.ScreeningService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /screenings con from/to/room/subtitled, resuelto en ScreeningScheduleIndex. Sesiones en 2044, donde no hay otras
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ScreeningScheduleTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    private Long movieId;
+
+    // Sala A a las 12 y 18 (subtitulada), sala B a las 15 y 20 (subtitulada)
+    @BeforeEach
+    void createSchedule() {
+        movieId = movieService.create(new MovieInDto(null, "Window movie", "Drama", 90, LocalDate.of(2040, 1, 1), true)).getId();
+        add(12, "Window room A", false);
+        add(18, "Window room A", true);
+        add(15, "Window room B", false);
+        add(20, "Window room B", true);
+    }
+
+    @AfterEach
+    void deleteMovie() {
+        movieService.delete(movieId);
+    }
+
+    // Las salas se mezclan por hora; from entra en la ventana y to no
+    @Test
+    void mergesRoomsByTimeWithinAHalfOpenWindow() throws Exception {
+        mockMvc.perform(get("/screenings").param("from", "2044-04-01T12:00:00").param("to", "2044-04-01T20:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].screeningTime", contains("2044-04-01T12:00:00", "2044-04-01T15:00:00", "2044-04-01T18:00:00")))
+                .andExpect(jsonPath("$[*].theaterRoom", contains("Window room A", "Window room B", "Window room A")));
+        mockMvc.perform(get("/screenings").param("from", "2044-04-01T12:00:01").param("to", "2044-04-02T00:00:00"))
+                .andExpect(jsonPath("$[*].screeningTime", contains("2044-04-01T15:00:00", "2044-04-01T18:00:00", "2044-04-01T20:00:00")));
+    }
+
+    @Test
+    void filtersByRoomAndSubtitles() throws Exception {
+        String from = "2044-04-01T00:00:00";
+        String to = "2044-04-02T00:00:00";
+        mockMvc.perform(get("/screenings").param("from", from).param("to", to).param("room", "Window room B"))
+                .andExpect(jsonPath("$[*].screeningTime", contains("2044-04-01T15:00:00", "2044-04-01T20:00:00")));
+        mockMvc.perform(get("/screenings").param("from", from).param("to", to).param("subtitled", "true"))
+                .andExpect(jsonPath("$[*].screeningTime", contains("2044-04-01T18:00:00", "2044-04-01T20:00:00")));
+        mockMvc.perform(get("/screenings").param("from", from).param("to", to).param("room", "Window room A").param("subtitled", "false"))
+                .andExpect(jsonPath("$[*].screeningTime", contains("2044-04-01T12:00:00")));
+        mockMvc.perform(get("/screenings").param("from", from).param("to", to).param("room", "Window room Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    void rejectsAnEmptyOrInvertedWindow() throws Exception {
+        for (List<String> window : List.of(List.of("2044-04-01T18:00:00", "2044-04-01T18:00:00"),
+                List.of("2044-04-01T20:00:00", "2044-04-01T12:00:00"))) {
+            mockMvc.perform(get("/screenings").param("from", window.get(0)).param("to", window.get(1)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("'from' must be before 'to'"));
+        }
+    }
+
+    private void add(int hour, String room, boolean subtitled) {
+        screeningService.add(new ScreeningInDto(LocalDateTime.of(2044, 4, 1, hour, 0), room, 8.0, subtitled, movieId));
+    }
+}
@@ -0,0 +1,21 @@
+package com.svalero.cinemas.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Los tests de MoviePatchTests con un unico UPDATE ... SET de las columnas recibidas (CriteriaUpdate)
+@SpringBootTest(properties = "cinemas.movies.targeted-patch=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TargetedMoviePatchTests extends MoviePatchTests {
+
+    @Test
+    void usesTheTargetedUpdate() {
+        assertEquals(true, ReflectionTestUtils.getField(movieService, "targetedPatch"));
+    }
+}
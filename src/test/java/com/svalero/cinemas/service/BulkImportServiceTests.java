@@ -0,0 +1,162 @@
+package com.svalero.cinemas.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.BulkImportResult;
+import com.svalero.cinemas.domain.dto.BulkRowError;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.MovieSearchHitDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.repository.MovieRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: cada bloque se confirma en su propia transaccion. Las filas se leen como en BulkPayloadReader
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkImportServiceTests {
+
+    // Mas largo que las columnas varchar(255): pasa la validacion y lo rechaza la base de datos
+    private static final String TOO_LONG = "x".repeat(300);
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private MovieSearchIndex searchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> movies = new ArrayList<>();
+
+    @AfterEach
+    void deleteMovies() {
+        movies.forEach(movieService::delete);
+    }
+
+    // El bloque entero falla por la segunda fila; las otras dos se guardan una vez cada una y con su id en los indices
+    @Test
+    void retriesARejectedChunkRowByRow() throws IOException {
+        BulkImportResult result = bulkImportService.importMovies(ndjson(MovieInDto.class,
+                movieJson("Bulk retried first"), movieJson(TOO_LONG), movieJson("Bulk retried third")));
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L), result.getErrors().stream().map(BulkRowError::getRow).toList());
+        for (String title : List.of("Bulk retried first", "Bulk retried third")) {
+            List<Movie> saved = track(title);
+            assertEquals(1, saved.size());
+            assertEquals(List.of(saved.get(0).getId()),
+                    searchIndex.search(title, 10).stream().map(MovieSearchHitDto::getId).filter(movies::contains).toList());
+            assertTrue(movieService.findNowShowing().movies().stream().anyMatch(movie -> movie.getId().equals(saved.get(0).getId())));
+        }
+    }
+
+    // Un valor de tipo incorrecto solo pierde su fila; una linea rota para la importacion
+    @Test
+    void reportsMalformedNdjsonRows() throws IOException {
+        BulkImportResult result = bulkImportService.importMovies(ndjson(MovieInDto.class,
+                movieJson("Bulk ndjson first"),
+                "{\"title\":\"Bulk ndjson typed\",\"genre\":\"Drama\",\"durationMinutes\":\"long\",\"releaseDate\":\"2040-01-01\"}",
+                movieJson("Bulk ndjson third"),
+                "{\"title\":"));
+
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L, 4L), result.getErrors().stream().map(BulkRowError::getRow).toList());
+        assertTrue(result.getErrors().get(1).getMessage().startsWith("Malformed content, import stopped"));
+        assertEquals(1, track("Bulk ndjson first").size());
+        assertEquals(1, track("Bulk ndjson third").size());
+    }
+
+    @Test
+    void reportsMalformedCsvRows() throws IOException {
+        BulkImportResult result = bulkImportService.importMovies(csv(
+                "title,genre,durationMinutes,releaseDate,currentlyShowing",
+                "Bulk csv first,Drama,100,2040-01-01,true",
+                "Bulk csv dated,Drama,100,not-a-date,true",
+                "Bulk csv third,Drama,100,2040-01-01,false"));
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(2L), result.getErrors().stream().map(BulkRowError::getRow).toList());
+        assertEquals(1, track("Bulk csv first").size());
+        assertEquals(1, track("Bulk csv third").size());
+    }
+
+    // Validacion, pelicula inexistente, solape con una fila anterior y rechazo de la base de datos, cada uno en su fila
+    @Test
+    void reportsErrorsPerRow() throws IOException {
+        Long movieId = movieService.create(new MovieInDto(null, "Bulk screened", "Drama", 100, LocalDate.of(2040, 1, 1), true)).getId();
+        movies.add(movieId);
+
+        BulkImportResult result = bulkImportService.importScreenings(ndjson(ScreeningInDto.class,
+                screeningJson("2041-02-01T18:00:00", "Bulk room", "8.0", movieId),
+                screeningJson("2041-02-01T22:00:00", "Bulk room", null, movieId),
+                screeningJson("2041-02-01T22:00:00", "Bulk room", "8.0", 999999L),
+                screeningJson("2041-02-01T19:00:00", "Bulk room", "8.0", movieId),
+                screeningJson("2041-02-01T18:00:00", TOO_LONG, "8.0", movieId)));
+
+        assertEquals(5, result.getReceived());
+        assertEquals(1, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(List.of(2L, 3L, 4L, 5L), result.getErrors().stream().map(BulkRowError::getRow).toList());
+        assertEquals("ticketPrice: Ticket price is required", result.getErrors().get(0).getMessage());
+        assertEquals("Movie with ID 999999 not found", result.getErrors().get(1).getMessage());
+        assertEquals(List.of("Bulk room"),
+                movieService.findDetail(movieId).getScreenings().stream().map(ScreeningOutDto::getTheaterRoom).toList());
+    }
+
+    private List<Movie> track(String title) {
+        List<Movie> found = movieRepository.findByTitle(title);
+        found.forEach(movie -> movies.add(movie.getId()));
+        return found;
+    }
+
+    private <T> MappingIterator<T> ndjson(Class<T> rowType, String... lines) throws IOException {
+        return objectMapper.readerFor(rowType).readValues(String.join("\n", lines));
+    }
+
+    private MappingIterator<MovieInDto> csv(String... lines) throws IOException {
+        return CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build()
+                .readerFor(MovieInDto.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(String.join("\n", lines));
+    }
+
+    private static String movieJson(String title) {
+        return "{\"title\":\"" + title + "\",\"genre\":\"Drama\",\"durationMinutes\":100,\"releaseDate\":\"2040-01-01\","
+                + "\"currentlyShowing\":true}";
+    }
+
+    private static String screeningJson(String time, String room, String price, Long movieId) {
+        return "{\"screeningTime\":\"" + time + "\",\"theaterRoom\":\"" + room + "\",\"ticketPrice\":" + price
+                + ",\"subtitled\":false,\"movieId\":" + movieId + "}";
+    }
+}
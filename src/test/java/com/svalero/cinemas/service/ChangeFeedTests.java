@@ -0,0 +1,203 @@
+package com.svalero.cinemas.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.domain.dto.ChangeEventDto;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Base de datos y fichero de cambios propios: los offsets empiezan en 1 y el fichero se vuelve a abrir como tras
+// un reinicio
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:changes-test;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class ChangeFeedTests {
+
+    @TempDir
+    static Path logDir;
+
+    @DynamicPropertySource
+    static void logDir(DynamicPropertyRegistry registry) {
+        registry.add("cinemas.changes.log-dir", logDir::toString);
+    }
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void publishesCommittedChangesInOrder() throws InterruptedException {
+        long start = changeFeed.lastOffset();
+        Recorder recorder = new Recorder();
+        changeFeed.subscribe(start, null, recorder);
+
+        Long movieId = movieService.create(new MovieInDto(null, "Feed movie", "Drama", 100, LocalDate.of(2031, 1, 1), true)).getId();
+        Long screeningId = screeningService.add(new ScreeningInDto(LocalDateTime.of(2031, 7, 1, 20, 0), "Feed room", 8.0, false, movieId)).getId();
+        // Lo que no se confirma no sale en el feed
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            movieService.create(new MovieInDto(null, "Rolled back", "Drama", 100, LocalDate.of(2031, 1, 1), true));
+            throw new IllegalStateException("rollback");
+        }));
+        movieService.delete(movieId);
+
+        List<ChangeEventDto> events = recorder.take(4);
+        assertEquals(List.of("movie created", "screening created", "screening deleted", "movie deleted"),
+                events.stream().map(event -> event.getEntity() + " " + event.getAction()).toList());
+        assertEquals(List.of(start + 1, start + 2, start + 3, start + 4), events.stream().map(ChangeEventDto::getOffset).toList());
+        assertEquals("Feed movie", events.get(0).getMovie().getTitle());
+        assertEquals(screeningId, events.get(1).getScreening().getId());
+        assertNull(events.get(3).getMovie());
+        assertNull(recorder.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void resumesFromTheLogAfterARestart() throws Exception {
+        List<Long> movies = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            movies.add(movieService.create(new MovieInDto(null, "Logged " + i, "Drama", 100, LocalDate.of(2031, 1, 1), true)).getId());
+        }
+        long last = changeFeed.lastOffset();
+
+        // Con un buffer de 1 los anteriores solo estan en el fichero
+        ChangeFeed restarted = new ChangeFeed(objectMapper, new SimpleMeterRegistry(), 1, logDir.toString(),
+                DataSize.ofMegabytes(16), DataSize.ofMegabytes(256), Duration.ofSeconds(1));
+        try {
+            assertEquals(last, restarted.lastOffset());
+            Recorder recorder = new Recorder();
+            restarted.subscribe(last - 3, ChangeEventDto.MOVIE, recorder);
+            assertEquals(movies, recorder.take(3).stream().map(ChangeEventDto::getId).toList());
+
+            Recorder ahead = new Recorder();
+            restarted.subscribe(last + 10, null, ahead);
+            assertEquals(last, ahead.resets.poll(5, TimeUnit.SECONDS));
+        } finally {
+            restarted.destroy();
+            movies.forEach(movieService::delete);
+        }
+    }
+
+    // Ficheros de 8KB y 24KB en total: se reparten los 500 eventos en varios y se borran los primeros
+    @Test
+    void rollsAndDeletesSegmentsAndSeeksIntoThem(@TempDir Path segmentsDir) throws Exception {
+        ChangeFeed feed = segmented(segmentsDir);
+        try {
+            for (long id = 1; id <= 500; id++) {
+                feed.movieChanged(ChangeEventDto.UPDATED, id, null);
+            }
+        } finally {
+            feed.destroy();
+        }
+        // Al arrancar tambien se aplica max-size
+        ChangeFeed restarted = segmented(segmentsDir);
+        try {
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(segmentsDir)) {
+                segments = files.sorted().toList();
+            }
+            assertTrue(segments.size() > 1);
+            long total = 0;
+            for (Path segment : segments.subList(0, segments.size() - 1)) {
+                total += Files.size(segment);
+            }
+            assertTrue(total <= 24 * 1024);
+            long firstLogged = Long.parseLong(segments.get(0).getFileName().toString().replace(".ndjson", ""));
+            assertTrue(firstLogged > 1);
+            assertEquals(500, restarted.lastOffset());
+
+            // Los borrados ya no se pueden leer: reset y sigue desde el primero que queda
+            Recorder behind = new Recorder();
+            restarted.subscribe(0, null, behind);
+            assertEquals(firstLogged - 1, behind.resets.poll(5, TimeUnit.SECONDS));
+            assertEquals(firstLogged, behind.take(1).get(0).getOffset());
+
+            // Desde la mitad de un fichero y pasando al siguiente, sin saltos
+            long after = firstLogged + 150;
+            Recorder middle = new Recorder();
+            restarted.subscribe(after, null, middle);
+            List<Long> offsets = middle.take((int) (500 - after)).stream().map(ChangeEventDto::getOffset).toList();
+            assertEquals(LongStream.rangeClosed(after + 1, 500).boxed().toList(), offsets);
+            assertTrue(middle.resets.isEmpty());
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    private ChangeFeed segmented(Path dir) {
+        return new ChangeFeed(objectMapper, new SimpleMeterRegistry(), 1, dir.toString(), DataSize.ofKilobytes(8),
+                DataSize.ofKilobytes(24), Duration.ofSeconds(1));
+    }
+
+    private static final class Recorder implements ChangeFeed.Subscriber {
+
+        private final BlockingQueue<ChangeEventDto> events = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Long> resets = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(ChangeEventDto event) {
+            events.add(event);
+        }
+
+        @Override
+        public void reset(long offset) {
+            resets.add(offset);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        List<ChangeEventDto> take(int count) throws InterruptedException {
+            List<ChangeEventDto> taken = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ChangeEventDto event = events.poll(5, TimeUnit.SECONDS);
+                if (event == null) {
+                    throw new AssertionError("Only " + taken + " arrived");
+                }
+                taken.add(event);
+            }
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.exception.IdempotencyKeyInUseException;
+import com.svalero.cinemas.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Con persistent las respuestas van tambien a idempotency_keys: un segundo IdempotencyStore sobre la misma base de
+// datos hace de nodo recien arrancado
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency-test;DB_CLOSE_DELAY=-1",
+        "cinemas.idempotency.persistent=true"})
+@ActiveProfiles("test")
+class IdempotencyStoreTests {
+
+    private static final String SCOPE = "POST /movies";
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void retriesGetTheStoredResponseUntilTheKeyIsReleased() {
+        assertTrue(store.begin(SCOPE, "retry", "body-1").isEmpty());
+        assertThrows(IdempotencyKeyInUseException.class, () -> store.begin(SCOPE, "retry", "body-1"));
+
+        store.complete(SCOPE, "retry", "body-1", new IdempotencyStore.StoredResponse(200, "{\"id\":1}"));
+        assertEquals(Optional.of(new IdempotencyStore.StoredResponse(200, "{\"id\":1}")), store.begin(SCOPE, "retry", "body-1"));
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.begin(SCOPE, "retry", "body-2"));
+        // Cada endpoint tiene sus propias claves
+        assertTrue(store.begin("POST /screenings", "retry", "body-2").isEmpty());
+
+        assertTrue(store.begin(SCOPE, "failed", "body-1").isEmpty());
+        store.release(SCOPE, "failed");
+        assertTrue(store.begin(SCOPE, "failed", "body-1").isEmpty());
+    }
+
+    // Si falla la consulta a idempotency_keys la clave no se queda reservada: el reintento se ejecuta
+    @Test
+    void releasesTheKeyWhenTheLookupFails() {
+        jdbcTemplate.execute("alter table idempotency_keys rename to idempotency_keys_off");
+        try {
+            assertThrows(DataAccessException.class, () -> store.begin(SCOPE, "lookup", "body-1"));
+        } finally {
+            jdbcTemplate.execute("alter table idempotency_keys_off rename to idempotency_keys");
+        }
+        assertTrue(store.begin(SCOPE, "lookup", "body-1").isEmpty());
+    }
+
+    @Test
+    void storedResponsesSurviveARestart() {
+        store.begin(SCOPE, "restart", "body-1");
+        store.complete(SCOPE, "restart", "body-1", new IdempotencyStore.StoredResponse(201, "{\"id\":2}"));
+
+        IdempotencyStore restarted = new IdempotencyStore(jdbcTemplate, 100, Duration.ofHours(1), true);
+        assertEquals(Optional.of(new IdempotencyStore.StoredResponse(201, "{\"id\":2}")), restarted.begin(SCOPE, "restart", "body-1"));
+        assertThrows(IdempotencyKeyReusedException.class, () -> restarted.begin(SCOPE, "restart", "body-2"));
+
+        // Caducada: se vuelve a ejecutar
+        jdbcTemplate.update("update idempotency_keys set created_at = dateadd('DAY', -2, created_at) where idempotency_key = 'restart'");
+        store.purgeExpired();
+        assertTrue(new IdempotencyStore(jdbcTemplate, 100, Duration.ofHours(1), true).begin(SCOPE, "restart", "body-1").isEmpty());
+    }
+}
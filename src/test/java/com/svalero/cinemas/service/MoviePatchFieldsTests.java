@@ -0,0 +1,81 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.exception.InvalidMoviePatchException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MoviePatchFieldsTests {
+
+    @Autowired
+    private MoviePatchFields moviePatchFields;
+
+    @Test
+    void exposesTheEditableFieldsOfMovieInDto() {
+        assertEquals(Set.of("title", "genre", "durationMinutes", "releaseDate", "currentlyShowing"), moviePatchFields.names());
+    }
+
+    // Como en el cuerpo de un POST: fechas y numeros como texto tambien valen
+    @Test
+    void convertsValuesToTheTypeOfEachField() {
+        Map<String, Object> updates = new LinkedHashMap<>();
+        updates.put("title", "Patched");
+        updates.put("durationMinutes", "125");
+        updates.put("releaseDate", "2041-05-01");
+        updates.put("currentlyShowing", false);
+
+        Movie movie = new Movie();
+        movie.setCurrentlyShowing(true);
+        List<MoviePatchFields.PatchValue> values = moviePatchFields.resolve(updates);
+        values.forEach(value -> value.applyTo(movie));
+
+        assertEquals(List.of("title", "durationMinutes", "releaseDate", "currentlyShowing"),
+                values.stream().map(value -> value.field().name()).toList());
+        assertEquals("Patched", movie.getTitle());
+        assertEquals(125, movie.getDurationMinutes());
+        assertEquals(LocalDate.of(2041, 5, 1), movie.getReleaseDate());
+        assertFalse(movie.isCurrentlyShowing());
+    }
+
+    @Test
+    void rejectsUnknownAndUnconvertibleValues() {
+        assertEquals("Nothing to update", reject(Map.of()));
+        assertTrue(reject(Map.of("id", 5)).startsWith("Cannot update movie field: id"));
+        assertTrue(reject(Map.of("director", "Someone")).startsWith("Cannot update movie field: director"));
+        assertEquals("durationMinutes: cannot convert long to int", reject(Map.of("durationMinutes", "long")));
+        assertEquals("releaseDate: cannot convert 1st of May to LocalDate", reject(Map.of("releaseDate", "1st of May")));
+        Map<String, Object> nullDuration = new HashMap<>();
+        nullDuration.put("durationMinutes", null);
+        assertEquals("durationMinutes: must not be null", reject(nullDuration));
+    }
+
+    // Las mismas reglas que MovieInDto
+    @Test
+    void validatesValuesLikeMovieInDto() {
+        assertEquals("title: must not be blank", reject(Map.of("title", " ")));
+        assertEquals("durationMinutes: Duration must be at least 1 minute", reject(Map.of("durationMinutes", 0)));
+        Map<String, Object> nullDate = new HashMap<>();
+        nullDate.put("releaseDate", null);
+        assertEquals("releaseDate: Release date is required", reject(nullDate));
+    }
+
+    private String reject(Map<String, Object> updates) {
+        return assertThrows(InvalidMoviePatchException.class, () -> moviePatchFields.resolve(updates)).getMessage();
+    }
+}
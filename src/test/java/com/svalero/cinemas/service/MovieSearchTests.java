@@ -0,0 +1,73 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.MovieSearchHitDto;
+import com.svalero.cinemas.exception.InvalidMovieQueryException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: el indice solo cambia cuando se confirma cada alta, modificacion o baja
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieSearchTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    private final List<Long> movies = new ArrayList<>();
+
+    // Para no dejar peliculas a los demas tests, que comparten la base de datos
+    @AfterEach
+    void deleteMovies() {
+        movies.forEach(movieService::delete);
+    }
+
+    @Test
+    void findsTitlesByWordsPrefixesAndTyposRankedByRelevance() {
+        Long episodeFour = create("Zarkon Wars: Episode IV", "Scifi");
+        Long episodeFive = create("Zarkon Wars: Episode V", "Scifi");
+        Long documentary = create("The Making of Zarkon", "Documentary");
+
+        assertEquals(List.of(episodeFour, episodeFive), ids(movieService.search("zarkon wars", 10)));
+        assertEquals(List.of(episodeFour, episodeFive), ids(movieService.search("Zárkon epis", 10)));
+        assertEquals(List.of(episodeFour, episodeFive), ids(movieService.search("zarkin wars", 10)));
+        assertTrue(ids(movieService.search("zarkon documentary", 10)).contains(documentary));
+        assertEquals(List.of("Zarkon Wars: Episode IV", "Zarkon Wars: Episode V"), movieService.suggestTitles("zarkon wars ep", 10));
+        assertThrows(InvalidMovieQueryException.class, () -> movieService.search(" :: ", 10));
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        Long id = create("Quorvath Rising", "Drama");
+
+        movieService.updatePartial(id, Map.of("title", "Quorvath Falling"), null);
+        assertTrue(movieService.search("rising quorvath", 10).isEmpty());
+        assertEquals(List.of(id), ids(movieService.search("quorvath falling", 10)));
+
+        movieService.delete(id);
+        movies.remove(id);
+        assertTrue(movieService.search("quorvath", 10).isEmpty());
+    }
+
+    private Long create(String title, String genre) {
+        Long movieId = movieService.create(new MovieInDto(null, title, genre, 120, LocalDate.of(2024, 1, 1), true)).getId();
+        movies.add(movieId);
+        return movieId;
+    }
+
+    private static List<Long> ids(List<MovieSearchHitDto> hits) {
+        return hits.stream().map(MovieSearchHitDto::getId).toList();
+    }
+}
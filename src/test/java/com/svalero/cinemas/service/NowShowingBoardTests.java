@@ -0,0 +1,102 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.NowShowingMovieDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: la cartelera solo cambia cuando se confirma cada escritura. Con 3 sesiones por sala (por defecto)
+@SpringBootTest
+@ActiveProfiles("test")
+class NowShowingBoardTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private NowShowingBoard nowShowingBoard;
+
+    private final List<Long> movies = new ArrayList<>();
+
+    // Al borrar las peliculas se borran sus sesiones, para no dejar datos a los demas tests
+    @AfterEach
+    void deleteMovies() {
+        movies.forEach(movieService::delete);
+    }
+
+    @Test
+    void keepsTheNextScreeningsPerRoomOfMoviesCurrentlyShowing() {
+        Long movieId = create("Board movie");
+        LocalDateTime day = LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.DAYS);
+        for (int hour : new int[]{20, 12, 22, 16}) {
+            screeningService.add(new ScreeningInDto(day.withHour(hour), "Board room A", 8.0, false, movieId));
+        }
+        ScreeningOutDto roomB = screeningService.add(new ScreeningInDto(day.withHour(18), "Board room B", 8.0, false, movieId));
+
+        assertEquals(List.of(day.withHour(12), day.withHour(16), day.withHour(18), day.withHour(20)),
+                find(movieId).orElseThrow().getNextScreenings().stream().map(ScreeningOutDto::getScreeningTime).toList());
+
+        screeningService.delete(roomB.getId());
+        assertEquals(3, find(movieId).orElseThrow().getNextScreenings().size());
+
+        long revision = nowShowingBoard.current().revision();
+        movieService.updatePartial(movieId, Map.of("currentlyShowing", false), null);
+        assertTrue(find(movieId).isEmpty());
+        assertNotEquals(revision, nowShowingBoard.current().revision());
+    }
+
+    @Test
+    void dropsScreeningsOnceTheyStart() throws InterruptedException {
+        Long movieId = create("Rolling movie");
+        screeningService.add(new ScreeningInDto(LocalDateTime.now().plusSeconds(1), "Rolling room", 8.0, false, movieId));
+        assertEquals(1, find(movieId).orElseThrow().getNextScreenings().size());
+
+        Thread.sleep(1500);
+        nowShowingBoard.rollForward();
+
+        assertTrue(find(movieId).orElseThrow().getNextScreenings().isEmpty());
+    }
+
+    // Cambiar la hora de una sesion sin cambiar de pelicula solo recalcula esa pelicula
+    @Test
+    void followsAScreeningThatKeepsItsMovie() {
+        Long movieId = create("Rescheduled movie");
+        LocalDateTime day = LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.DAYS);
+        ScreeningOutDto screening = screeningService.add(new ScreeningInDto(day.withHour(18), "Rescheduled room", 8.0, false, movieId));
+
+        screeningService.modify(screening.getId(), new ScreeningInDto(day.withHour(21), "Rescheduled room", 9.0, false, movieId));
+
+        assertEquals(List.of(day.withHour(21)),
+                find(movieId).orElseThrow().getNextScreenings().stream().map(ScreeningOutDto::getScreeningTime).toList());
+    }
+
+    private Long create(String title) {
+        Long movieId = movieService.create(new MovieInDto(null, title, "Drama", 90, LocalDate.of(2024, 1, 1), true)).getId();
+        movies.add(movieId);
+        return movieId;
+    }
+
+    private Optional<NowShowingMovieDto> find(Long movieId) {
+        return movieService.findNowShowing().movies().stream().filter(movie -> movie.getId().equals(movieId)).findFirst();
+    }
+}
@@ -0,0 +1,135 @@
+package com.svalero.cinemas.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.svalero.cinemas.config.ReactiveReadServer;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Las rutas reactivas sobre su propio servidor (puerto libre) contra lo que devuelven los servicios de MVC. Base de
+// datos propia: las altas se confirman para que R2DBC las vea
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-test;DB_CLOSE_DELAY=-1",
+        "cinemas.reactive.enabled=true",
+        "cinemas.reactive.port=0"})
+@ActiveProfiles("test")
+class ReactiveReadTests {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2031, 6, 1, 18, 0);
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private ReactiveReadServer reactiveReadServer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> movies = new ArrayList<>();
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + reactiveReadServer.getPort()).build();
+    }
+
+    @AfterEach
+    void deleteMovies() {
+        movies.forEach(movieService::delete);
+    }
+
+    @Test
+    void returnsTheSameJsonAsTheServices() {
+        Long dune = create("Reactive Dune", "Scifi", true);
+        create("Reactive Alien", "Horror", false);
+        screeningService.add(new ScreeningInDto(TIME, "Reactive room", 8.5, true, dune));
+        screeningService.add(new ScreeningInDto(TIME.plusHours(4), "Reactive room", 8.5, false, dune));
+
+        assertEquals(json(movieService.findDetail(dune)), get("/movies/" + dune));
+        assertEquals(json(screeningService.findAll()), get("/screenings"));
+        assertEquals("Reactive Alien", get("/movies?genre=Horror&currentlyShowing=false").get(0).get("title").asText());
+        assertEquals(1, get("/screenings?room=Reactive room&from=" + TIME.plusHours(1)).size());
+
+        client.get().uri("/movies/{id}", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+        client.get().uri("/screenings?from={from}&to={to}", TIME, TIME).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("'from' must be before 'to'");
+        client.get().uri("/movies?minDuration=long").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamsOneRowPerLine() {
+        Long movieId = create("Reactive stream", "Drama", true);
+        for (int i = 0; i < 5; i++) {
+            screeningService.add(new ScreeningInDto(TIME.plusDays(i), "Stream room", 7.0, false, movieId));
+        }
+
+        List<ScreeningOutDto> streamed = client.get().uri("/screenings?room=Stream room")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .returnResult(ScreeningOutDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertEquals(5, streamed.size());
+        assertEquals(TIME.plusDays(4), streamed.get(4).getScreeningTime());
+
+        client.get().uri("/screenings?room=Stream room")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    private Long create(String title, String genre, boolean currentlyShowing) {
+        Long movieId = movieService.create(new MovieInDto(null, title, genre, 120, LocalDate.of(2031, 1, 1), currentlyShowing)).getId();
+        movies.add(movieId);
+        return movieId;
+    }
+
+    private JsonNode get(String uri) {
+        return readTree(client.get().uri(uri).exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody());
+    }
+
+    // Escrito y vuelto a leer, para comparar el JSON y no los tipos de Java
+    private JsonNode json(Object value) {
+        try {
+            return readTree(objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private JsonNode readTree(byte[] json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.config.ReplicaDataSource;
+import com.svalero.cinemas.domain.dto.MovieFilter;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.exception.MovieNotFoundException;
+import com.svalero.cinemas.migration.AlignIdSequencesMigration;
+import com.svalero.cinemas.repository.MovieRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Dos H2 en memoria hacen de primario y de replica. No hay replicacion entre ellas: una pelicula que solo esta en la
+// replica indica de donde ha leido cada llamada. El retraso de la replica sale de la tabla replica_status
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "cinemas.datasource.replica-urls=" + ReplicaRoutingTests.REPLICA_URL,
+        "cinemas.datasource.replica-lag-query=SELECT seconds_behind_master FROM replica_status",
+        "cinemas.datasource.replica-lag-column=seconds_behind_master",
+        "cinemas.datasource.replica-max-lag=5s",
+        "cinemas.datasource.replica-check-interval=1h"})
+@ActiveProfiles("test")
+class ReplicaRoutingTests {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    private static final long REPLICA_ONLY_MOVIE = 900;
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ReplicaDataSource replicaDataSource;
+
+    // Antes de arrancar el contexto, para que la replica ya tenga el esquema en la primera comprobacion
+    @BeforeAll
+    static void createReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "password");
+        Flyway.configure().dataSource(dataSource).javaMigrations(new AlignIdSequencesMigration()).load().migrate();
+        replica = new JdbcTemplate(dataSource);
+        replica.execute("create table replica_status (seconds_behind_master int)");
+        replica.update("insert into replica_status values (0)");
+        replica.update("insert into movies (id, title, genre, duration_minutes, release_date, currently_showing) values (?, ?, ?, ?, ?, ?)",
+                REPLICA_ONLY_MOVIE, "Replicated", "Drama", 100, LocalDate.of(2024, 1, 1), true);
+    }
+
+    @BeforeEach
+    void replicaUpToDate() {
+        replica.update("update replica_status set seconds_behind_master = 0");
+        replicaDataSource.checkReplicas();
+    }
+
+    @Test
+    void readOnlyServiceMethodsReadFromTheReplica() {
+        assertEquals(1, replicaDataSource.getAvailableReplicas());
+        assertEquals("Replicated", movieService.findDetail(REPLICA_ONLY_MOVIE).getTitle());
+        assertTrue(movieService.findAll(new MovieFilter(), Sort.unsorted()).stream()
+                .anyMatch(movie -> movie.getId() == REPLICA_ONLY_MOVIE));
+    }
+
+    @Test
+    void writesAndRepositoryReadsStayOnThePrimary() {
+        Long created = movieService.create(new MovieInDto(null, "Primary", "Drama", 100, LocalDate.of(2024, 1, 1), true)).getId();
+
+        assertTrue(movieRepository.findById(created).isPresent());
+        assertTrue(movieRepository.findById(REPLICA_ONLY_MOVIE).isEmpty());
+        // Sin replicacion, la replica nunca llega a ver la pelicula nueva (por id podria salir de la cache de segundo nivel)
+        assertTrue(movieService.findAll(new MovieFilter(), Sort.unsorted()).stream()
+                .noneMatch(movie -> movie.getId().equals(created)));
+    }
+
+    @Test
+    void laggingReplicaFallsBackToThePrimary() {
+        replica.update("update replica_status set seconds_behind_master = 60");
+        replicaDataSource.checkReplicas();
+
+        assertEquals(0, replicaDataSource.getAvailableReplicas());
+        assertThrows(MovieNotFoundException.class, () -> movieService.findDetail(REPLICA_ONLY_MOVIE));
+    }
+}
@@ -0,0 +1,187 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.ReservedSeat;
+import com.svalero.cinemas.domain.TheaterRoom;
+import com.svalero.cinemas.domain.dto.ReservationInDto;
+import com.svalero.cinemas.domain.dto.ReservationOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.SeatDto;
+import com.svalero.cinemas.exception.ReservationNotFoundException;
+import com.svalero.cinemas.exception.SeatUnavailableException;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ReservedSeatRepository;
+import com.svalero.cinemas.repository.TheaterRoomRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationServiceTests {
+
+    private static final String ROOM = "Premiere room";
+    private static final int SEAT_ROWS = 5;
+    private static final int SEATS_PER_ROW = 10;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservedSeatWriter reservedSeatWriter;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private TheaterRoomRepository theaterRoomRepository;
+
+    @Autowired
+    private ReservedSeatRepository reservedSeatRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Movie movie;
+    private Long screeningId;
+
+    @BeforeEach
+    void createScreening() {
+        theaterRoomRepository.save(new TheaterRoom(ROOM, SEAT_ROWS, SEATS_PER_ROW));
+        movie = movieRepository.save(new Movie(null, "Premiere", "Drama", 120, LocalDate.of(2030, 1, 1), true, null, null, null));
+        screeningId = screeningService.add(new ScreeningInDto(LocalDateTime.of(2030, 4, 1, 20, 0), ROOM, 9.5, false,
+                movie.getId())).getId();
+    }
+
+    @AfterEach
+    void deleteScreening() {
+        movieService.delete(movie.getId());
+    }
+
+    // La butaca 0 ya es de otra reserva: esa fila se anota como fallida y el resto del lote se guarda. Una fallida
+    // por un corte (la butaca 2) se guarda al reconciliar; la del choque se queda anotada y sigue contando como vendida
+    @Test
+    void recordsSeatsThatCouldNotBeWrittenAndReconcilesThem() {
+        reservedSeatWriter.enqueue(List.of(new ReservedSeat(null, screeningId, 0, "first-buyer", LocalDateTime.now())));
+        reservedSeatWriter.flush();
+        double failedBefore = meterRegistry.counter("cinemas.reservations.seat-writes.failed").count();
+
+        reservedSeatWriter.enqueue(List.of(new ReservedSeat(null, screeningId, 0, "second-buyer", LocalDateTime.now()),
+                new ReservedSeat(null, screeningId, 1, "second-buyer", LocalDateTime.now())));
+        reservedSeatWriter.flush();
+        jdbcTemplate.update("insert into failed_seat_writes (screening_id, seat_index, reservation_id, reserved_at, failed_at, error) "
+                + "values (?, 2, 'third-buyer', ?, ?, 'Connection lost')", screeningId, LocalDateTime.now(), LocalDateTime.now());
+
+        assertEquals(failedBefore + 1, meterRegistry.counter("cinemas.reservations.seat-writes.failed").count());
+        assertEquals(List.of(0, 2), reservedSeatWriter.findUnwrittenSeatIndexes(screeningId).stream().sorted().toList());
+        assertEquals(1, reservedSeatWriter.reconcile());
+        assertEquals(List.of(0, 1, 2), reservedSeatRepository.findSeatIndexesByScreeningId(screeningId).stream().sorted().toList());
+        assertEquals(List.of("second-buyer"), jdbcTemplate.queryForList(
+                "select reservation_id from failed_seat_writes where screening_id = ?", String.class, screeningId));
+        assertEquals(SEAT_ROWS * SEATS_PER_ROW - 3, reservationService.getSeatMap(screeningId).getAvailable());
+
+        // Con la sesion borrada ya no hay nada que guardar
+        movieService.delete(movie.getId());
+        reservedSeatWriter.reconcile();
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from failed_seat_writes where screening_id = ?",
+                Integer.class, screeningId));
+        movie = movieRepository.save(new Movie(null, "Premiere", "Drama", 120, LocalDate.of(2030, 1, 1), true, null, null, null));
+    }
+
+    @Test
+    void concurrentBuyersNeverGetTheSameSeat() throws Exception {
+        Set<Integer> sold = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> buyers = new ArrayList<>();
+            for (int buyer = 0; buyer < 32; buyer++) {
+                buyers.add(executor.submit(() -> {
+                    start.await();
+                    while (true) {
+                        ReservationOutDto reservation;
+                        try {
+                            reservation = reservationService.hold(screeningId,
+                                    new ReservationInDto(null, 1 + ThreadLocalRandom.current().nextInt(3)));
+                        } catch (SeatUnavailableException e) {
+                            // Quedan menos de las pedidas: cuando no queda ninguna se acaba
+                            if (reservationService.getSeatMap(screeningId).getAvailable() == 0) {
+                                return null;
+                            }
+                            continue;
+                        }
+                        for (SeatDto seat : reservation.getSeats()) {
+                            if (!sold.add((seat.getRow() - 1) * SEATS_PER_ROW + seat.getSeat() - 1)) {
+                                duplicates.incrementAndGet();
+                            }
+                        }
+                        reservationService.confirm(screeningId, reservation.getId());
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> buyer : buyers) {
+                buyer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(SEAT_ROWS * SEATS_PER_ROW, sold.size());
+        assertTrue(reservationService.getSeatMap(screeningId).getRows().stream().allMatch(row -> row.equals("X".repeat(SEATS_PER_ROW))));
+
+        reservedSeatWriter.flush();
+        assertEquals(SEAT_ROWS * SEATS_PER_ROW, reservedSeatRepository.findSeatIndexesByScreeningId(screeningId).size());
+    }
+
+    @Test
+    void expiredHoldsReleaseTheirSeats() {
+        ReservationOutDto confirmed = reservationService.hold(screeningId,
+                new ReservationInDto(List.of(new SeatDto(1, 1), new SeatDto(1, 2)), null));
+        reservationService.confirm(screeningId, confirmed.getId());
+        ReservationOutDto held = reservationService.hold(screeningId, new ReservationInDto(null, 3));
+        assertEquals(3 * 9.5, held.getTotalPrice());
+        assertThrows(SeatUnavailableException.class, () -> reservationService.hold(screeningId,
+                new ReservationInDto(List.of(new SeatDto(1, 2)), null)));
+
+        reservationService.expireHolds(held.getExpiresAt().plusSeconds(1));
+
+        assertEquals(SEAT_ROWS * SEATS_PER_ROW - 2, reservationService.getSeatMap(screeningId).getAvailable());
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.confirm(screeningId, held.getId()));
+        reservedSeatWriter.flush();
+        assertEquals(List.of(0, 1), reservedSeatRepository.findSeatIndexesByScreeningId(screeningId).stream().sorted().toList());
+    }
+}
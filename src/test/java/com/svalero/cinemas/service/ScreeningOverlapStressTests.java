@@ -0,0 +1,154 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.RoomSlot;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.domain.dto.ScreeningScheduleFilter;
+import com.svalero.cinemas.exception.ScreeningConflictException;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: cada alta confirma su propia transaccion, como en una peticion real
+@SpringBootTest
+@ActiveProfiles("test")
+class ScreeningOverlapStressTests {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+    private static final int DURATION_MINUTES = 90;
+    private static final String SHARED_ROOM = "Stress room";
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 3, 1, 0, 0);
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @Autowired
+    private ScreeningScheduleIndex scheduleIndex;
+
+    private Movie movie;
+
+    @BeforeEach
+    void createMovie() {
+        movie = movieRepository.save(new Movie(null, "Stress", "Drama", DURATION_MINUTES, LocalDate.of(2030, 1, 1), true, null, null, null));
+    }
+
+    @AfterEach
+    void deleteMovie() {
+        movieService.delete(movie.getId());
+    }
+
+    @Test
+    void concurrentBookingsNeverOverlapInTheSameRoom() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                String ownRoom = "Stress room " + thread;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                        // Sala compartida: horas al azar cada 15 minutos, la mayoria chocan con otra sesion
+                        LocalDateTime time = DAY.plusMinutes(15L * ThreadLocalRandom.current().nextInt(96));
+                        try {
+                            screeningService.add(new ScreeningInDto(time, SHARED_ROOM, 8.0, false, movie.getId()));
+                            booked.incrementAndGet();
+                        } catch (ScreeningConflictException e) {
+                            rejected.incrementAndGet();
+                        }
+                        // Sala propia, sesiones seguidas sin solape: nunca se pueden rechazar
+                        screeningService.add(new ScreeningInDto(DAY.plusMinutes((long) DURATION_MINUTES * attempt),
+                                ownRoom, 8.0, false, movie.getId()));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<RoomSlot> slots = screeningRepository.findRoomSlots(SHARED_ROOM, DAY.minusDays(1), DAY.plusDays(2));
+        assertEquals(booked.get(), slots.size());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD, booked.get() + rejected.get());
+        assertTrue(rejected.get() > 0);
+        for (int i = 1; i < slots.size(); i++) {
+            LocalDateTime previousEnd = slots.get(i - 1).getScreeningTime().plusMinutes(DURATION_MINUTES);
+            assertFalse(slots.get(i).getScreeningTime().isBefore(previousEnd),
+                    "Screenings " + slots.get(i - 1).getScreeningId() + " and " + slots.get(i).getScreeningId() + " overlap");
+        }
+        // El indice en memoria ha recibido exactamente las sesiones confirmadas
+        assertEquals(booked.get(), screeningService.findSchedule(scheduleOf(SHARED_ROOM)).size());
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(ATTEMPTS_PER_THREAD, screeningRepository.findRoomSlots("Stress room " + thread,
+                    DAY.minusDays(1), DAY.plusDays(2)).size());
+        }
+    }
+
+    @Test
+    void longerMovieCannotRunIntoTheNextScreening() {
+        screeningService.add(new ScreeningInDto(DAY.withHour(16), SHARED_ROOM, 8.0, false, movie.getId()));
+        screeningService.add(new ScreeningInDto(DAY.withHour(18), SHARED_ROOM, 8.0, false, movie.getId()));
+
+        assertThrows(ScreeningConflictException.class,
+                () -> screeningService.add(new ScreeningInDto(DAY.withHour(17), SHARED_ROOM, 8.0, false, movie.getId())));
+        assertThrows(ScreeningConflictException.class,
+                () -> movieService.updatePartial(movie.getId(), Map.of("durationMinutes", 150), null));
+        movieService.updatePartial(movie.getId(), Map.of("durationMinutes", 120), null);
+    }
+
+    // Una sesion que solo esta en el indice (borrada en otro nodo, por ejemplo) no impide reservar su hueco
+    @Test
+    void staleIndexEntryDoesNotRejectABooking() {
+        scheduleIndex.put(new ScreeningOutDto(-1L, DAY.withHour(10), SHARED_ROOM, 8.0, false, movie.getId(), "Stress"),
+                DURATION_MINUTES);
+
+        screeningService.add(new ScreeningInDto(DAY.withHour(10).plusMinutes(30), SHARED_ROOM, 8.0, false, movie.getId()));
+
+        assertEquals(1, screeningRepository.findRoomSlots(SHARED_ROOM, DAY.minusDays(1), DAY.plusDays(2)).size());
+    }
+
+    private static ScreeningScheduleFilter scheduleOf(String room) {
+        ScreeningScheduleFilter filter = new ScreeningScheduleFilter();
+        filter.setRoom(room);
+        return filter;
+    }
+}
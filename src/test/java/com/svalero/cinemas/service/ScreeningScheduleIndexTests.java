@@ -0,0 +1,98 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sin @Transactional: el indice solo cambia cuando se confirma cada escritura. Sesiones en 2043, donde no hay otras
+@SpringBootTest
+@ActiveProfiles("test")
+class ScreeningScheduleIndexTests {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2043, 3, 1, 0, 0);
+
+    @Autowired
+    private ScreeningScheduleIndex scheduleIndex;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long movieId;
+
+    @BeforeEach
+    void createMovie() {
+        movieId = movieService.create(new MovieInDto(null, "Schedule movie", "Drama", 90, LocalDate.of(2040, 1, 1), true)).getId();
+    }
+
+    // Al borrar la pelicula se borran sus sesiones, tambien del indice
+    @AfterEach
+    void deleteMovie() {
+        movieService.delete(movieId);
+        assertTrue(scheduleIndex.find(DAY, DAY.plusDays(1), null, null).isEmpty());
+    }
+
+    @Test
+    void followsCommittedChanges() {
+        ScreeningOutDto screening = add(18, "Schedule room A", false);
+        assertEquals(List.of(screening.getId()), ids(scheduleIndex.find(DAY, DAY.plusDays(1), "Schedule room A", null)));
+        String revision = scheduleIndex.revision();
+
+        screeningService.modify(screening.getId(), new ScreeningInDto(DAY.withHour(21), "Schedule room B", 9.0, true, movieId));
+        assertTrue(scheduleIndex.find(DAY, DAY.plusDays(1), "Schedule room A", null).isEmpty());
+        ScreeningOutDto moved = scheduleIndex.find(DAY, DAY.plusDays(1), "Schedule room B", true).get(0);
+        assertEquals(DAY.withHour(21), moved.getScreeningTime());
+        assertEquals("Schedule movie", moved.getMovieTitle());
+        assertNotEquals(revision, scheduleIndex.revision());
+
+        screeningService.delete(screening.getId());
+        assertTrue(scheduleIndex.get(screening.getId()).isEmpty());
+    }
+
+    // Lo que se deshace no llega al indice: ni el alta ni el cambio
+    @Test
+    void ignoresRolledBackChanges() {
+        ScreeningOutDto screening = add(18, "Schedule room A", false);
+        String revision = scheduleIndex.revision();
+
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            screeningService.add(new ScreeningInDto(DAY.withHour(12), "Schedule room A", 8.0, false, movieId));
+            screeningService.modify(screening.getId(), new ScreeningInDto(DAY.withHour(22), "Schedule room C", 8.0, true, movieId));
+            throw new IllegalStateException("rollback");
+        }));
+
+        assertEquals(revision, scheduleIndex.revision());
+        assertEquals(List.of(screening.getId()), ids(scheduleIndex.find(DAY, DAY.plusDays(1), null, null)));
+        assertEquals(DAY.withHour(18), scheduleIndex.get(screening.getId()).orElseThrow().getScreeningTime());
+    }
+
+    private ScreeningOutDto add(int hour, String room, boolean subtitled) {
+        return screeningService.add(new ScreeningInDto(DAY.withHour(hour), room, 8.0, subtitled, movieId));
+    }
+
+    private static List<Long> ids(List<ScreeningOutDto> screenings) {
+        return screenings.stream().map(ScreeningOutDto::getId).toList();
+    }
+}
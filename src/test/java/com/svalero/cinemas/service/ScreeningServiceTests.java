@@ -0,0 +1,61 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.Screening;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.repository.MovieRepository;
+import com.svalero.cinemas.repository.ScreeningRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ScreeningServiceTests {
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ScreeningRepository screeningRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void findAllLoadsScreeningsWithMovieTitlesInASingleQuery() {
+        for (int i = 0; i < 5; i++) {
+            Movie movie = movieRepository.save(new Movie(null, "Movie " + i, "Drama", 100, LocalDate.of(2024, 1, 1), true, null, null, null));
+            for (int j = 0; j < 2; j++) {
+                screeningRepository.save(new Screening(null, LocalDateTime.of(2026, 1, 1, 16 + j, 0), "Room " + i, 7.5, false, movie, null));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ScreeningOutDto> screenings = screeningService.findAll();
+
+        assertEquals(10, screenings.size());
+        assertEquals("Movie 0", screenings.get(0).getMovieTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
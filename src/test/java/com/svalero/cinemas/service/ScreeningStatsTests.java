@@ -0,0 +1,119 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningStatsDto;
+import com.svalero.cinemas.exception.InvalidStatsQueryException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Sin @Transactional: el resumen diario se guarda con cada escritura confirmada. Las sesiones son de 2040, para que
+// [from, to] deje fuera las de los demas tests
+@SpringBootTest
+@ActiveProfiles("test")
+class ScreeningStatsTests {
+
+    private static final LocalDate DAY = LocalDate.of(2040, 3, 10);
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ScreeningService screeningService;
+
+    @Autowired
+    private ScreeningStatsService screeningStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> movies = new ArrayList<>();
+
+    // Al borrar las peliculas se borran sus sesiones y sus filas del resumen
+    @AfterEach
+    void deleteMovies() {
+        movies.forEach(movieService::delete);
+        assertEquals(List.of(), screeningStatsService.findByDay(DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void aggregatesScreeningsByMovieRoomDayAndGenre() {
+        Long drama = create("Stats drama", "Stats genre A");
+        Long comedy = create("Stats comedy", "Stats genre B");
+        add(DAY.atTime(16, 0), "Stats room 1", 6.0, drama);
+        add(DAY.atTime(20, 0), "Stats room 1", 10.0, drama);
+        add(DAY.atTime(18, 0), "Stats room 2", 8.0, comedy);
+        add(DAY.plusDays(1).atTime(18, 0), "Stats room 2", 11.0, drama);
+
+        assertEquals(List.of(
+                        new ScreeningStatsDto(drama, "Stats drama", null, null, null, 3, 9.0),
+                        new ScreeningStatsDto(comedy, "Stats comedy", null, null, null, 1, 8.0)),
+                screeningStatsService.findByMovie(DAY, DAY.plusDays(1)));
+        assertEquals(List.of(
+                        new ScreeningStatsDto(null, null, "Stats room 1", null, null, 2, 8.0),
+                        new ScreeningStatsDto(null, null, "Stats room 2", null, null, 2, 9.5)),
+                screeningStatsService.findByRoom(DAY, DAY.plusDays(1)));
+        assertEquals(List.of(
+                        new ScreeningStatsDto(null, null, null, DAY, null, 3, 8.0),
+                        new ScreeningStatsDto(null, null, null, DAY.plusDays(1), null, 1, 11.0)),
+                screeningStatsService.findByDay(DAY, DAY.plusDays(1)));
+        assertEquals(List.of(
+                        new ScreeningStatsDto(null, null, null, null, "Stats genre A", 3, 9.0),
+                        new ScreeningStatsDto(null, null, null, null, "Stats genre B", 1, 8.0)),
+                screeningStatsService.findByGenre(DAY, DAY.plusDays(1)));
+        // Solo el primer dia
+        assertEquals(List.of(new ScreeningStatsDto(null, null, null, DAY, null, 3, 8.0)),
+                screeningStatsService.findByDay(DAY, DAY));
+        assertThrows(InvalidStatsQueryException.class, () -> screeningStatsService.findByDay(DAY.plusDays(1), DAY));
+    }
+
+    @Test
+    void followsScreeningChanges() {
+        Long movieId = create("Stats moved", "Stats genre C");
+        Long first = add(DAY.atTime(16, 0), "Stats room 3", 6.0, movieId);
+        Long second = add(DAY.atTime(20, 0), "Stats room 3", 10.0, movieId);
+
+        // Cambia de sala y de dia: salen las dos filas del resumen afectadas
+        screeningService.modify(second, new ScreeningInDto(DAY.plusDays(1).atTime(20, 0), "Stats room 4", 12.0, false, movieId));
+        assertEquals(List.of(
+                        new ScreeningStatsDto(null, null, null, DAY, null, 1, 6.0),
+                        new ScreeningStatsDto(null, null, null, DAY.plusDays(1), null, 1, 12.0)),
+                screeningStatsService.findByDay(DAY, DAY.plusDays(1)));
+
+        screeningService.delete(first);
+        assertEquals(List.of(new ScreeningStatsDto(null, null, "Stats room 4", null, null, 1, 12.0)),
+                screeningStatsService.findByRoom(DAY, DAY.plusDays(1)));
+        assertEquals(rollupFromScreenings(), jdbcTemplate.queryForList("select stat_day, theater_room, movie_id, "
+                + "screening_count, price_total from screening_daily_stats order by stat_day, theater_room, movie_id"));
+    }
+
+    // Lo que daria recalcular todo el resumen desde screenings
+    private List<Map<String, Object>> rollupFromScreenings() {
+        return jdbcTemplate.queryForList("select cast(screening_time as date) as stat_day, theater_room, movie_id, "
+                + "count(*) as screening_count, cast(sum(ticket_price) as double precision) as price_total from screenings "
+                + "group by cast(screening_time as date), theater_room, movie_id order by 1, 2, 3");
+    }
+
+    private Long create(String title, String genre) {
+        Long id = movieService.create(new MovieInDto(null, title, genre, 100, LocalDate.of(2040, 1, 1), true)).getId();
+        movies.add(id);
+        return id;
+    }
+
+    private Long add(LocalDateTime time, String room, double price, Long movieId) {
+        return screeningService.add(new ScreeningInDto(time, room, price, false, movieId)).getId();
+    }
+}
@@ -0,0 +1,127 @@
+package com.svalero.cinemas.service;
+
+import com.svalero.cinemas.domain.Movie;
+import com.svalero.cinemas.domain.dto.MovieInDto;
+import com.svalero.cinemas.domain.dto.ScreeningInDto;
+import com.svalero.cinemas.domain.dto.ScreeningOutDto;
+import com.svalero.cinemas.exception.ScreeningConflictException;
+import com.svalero.cinemas.exception.ScreeningNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ventana larga para que las altas simultaneas caigan siempre en el mismo lote. Base de datos propia: las altas se
+// confirman de verdad
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:coalescer-test;DB_CLOSE_DELAY=-1",
+        "cinemas.writes.coalesce.enabled=true",
+        "cinemas.writes.coalesce.window=200ms"})
+@ActiveProfiles("test")
+class WriteCoalescerTests {
+
+    private static final int THREADS = 12;
+    private static final LocalDateTime TIME = LocalDateTime.of(2031, 5, 1, 20, 0);
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Long> movies = new ArrayList<>();
+
+    @AfterEach
+    void deleteMovies() {
+        movies.forEach(movieService::delete);
+    }
+
+    @Test
+    void concurrentMovieCreatesAreWrittenTogether() throws Exception {
+        List<Future<Movie>> results = concurrently(THREADS, i ->
+                writeCoalescer.createMovie(new MovieInDto(null, "Coalesced " + i, "Drama", 100, LocalDate.of(2031, 1, 1), true)));
+
+        for (int i = 0; i < THREADS; i++) {
+            Movie movie = results.get(i).get();
+            movies.add(movie.getId());
+            assertEquals("Coalesced " + i, movie.getTitle());
+        }
+        assertEquals(THREADS, movies.stream().distinct().count());
+        assertTrue(meterRegistry.get("cinemas.writes.batch.size").tag("type", "movies").summary().max() > 1);
+    }
+
+    @Test
+    void eachScreeningGetsItsOwnOutcome() throws Exception {
+        Long movieId = writeCoalescer.createMovie(new MovieInDto(null, "Coalesced screenings", "Drama", 120, LocalDate.of(2031, 1, 1), true)).getId();
+        movies.add(movieId);
+
+        // Todas a la misma hora en la misma sala salvo la ultima, que es de una pelicula que no existe
+        List<Future<ScreeningOutDto>> results = concurrently(THREADS, i -> writeCoalescer.addScreening(
+                new ScreeningInDto(TIME, "Coalesced room", 8.0, false, i == THREADS - 1 ? -1L : movieId)));
+
+        int added = 0;
+        int conflicts = 0;
+        for (int i = 0; i < THREADS - 1; i++) {
+            try {
+                ScreeningOutDto screening = results.get(i).get();
+                assertEquals(movieId, screening.getMovieId());
+                added++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(ScreeningConflictException.class, e.getCause());
+                conflicts++;
+            }
+        }
+        assertEquals(1, added);
+        assertEquals(THREADS - 2, conflicts);
+        ExecutionException missingMovie = assertThrows(ExecutionException.class,
+                () -> results.get(THREADS - 1).get());
+        assertInstanceOf(ScreeningNotFoundException.class, missingMovie.getCause());
+    }
+
+    private interface Task<T> {
+        T run(int index);
+    }
+
+    private static <T> List<Future<T>> concurrently(int threads, Task<T> task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int index = i;
+                results.add(executor.submit((Callable<T>) () -> {
+                    start.await();
+                    return task.run(index);
+                }));
+            }
+            start.countDown();
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}